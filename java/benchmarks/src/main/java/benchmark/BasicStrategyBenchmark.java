@@ -0,0 +1,73 @@
+package benchmark;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import simulation.Simulation;
+import strategy.Answer;
+import strategy.Code;
+import strategy.FeedbackMatrix;
+import strategy.search.AnswerMasks;
+import strategy.search.CandidateSet;
+
+/**
+ * Benchmarks of the helpers of BasicStrategy on the consistent codes of a
+ * game after its first answer.
+ */
+@State(Scope.Thread)
+public class BasicStrategyBenchmark {
+
+	@Param({ "3", "4", "5" })
+	public int length;
+
+	private ExposedStrategy strategy;
+	/** Consistent codes after the first answer */
+	private CandidateSet midGame;
+	/** Reused copy of midGame */
+	private CandidateSet work;
+	private Code guess;
+	private Answer answer;
+
+	@Setup
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(42);
+		this.strategy = new ExposedStrategy(this.length);
+		Code first = this.strategy.reset();
+		Code secret = Simulation.createRandomCode(this.length, random);
+		AnswerMasks masks = AnswerMasks.forMatrix(FeedbackMatrix
+				.forLength(this.length));
+		this.midGame = new CandidateSet(masks);
+		this.midGame.copyFrom(this.strategy.getConsistentCodes());
+		this.midGame.retain(first.getIndex(), first.compare(secret).getId());
+		this.work = new CandidateSet(masks);
+		// The next guess and its answer for the same secret
+		this.guess = Simulation.createRandomCode(this.length, random);
+		this.answer = this.guess.compare(secret);
+		this.strategy.setLastButton(first);
+	}
+
+	@Benchmark
+	public List<Code> getConsistentCodes() {
+		return this.strategy.consistentCodes(this.strategy.getAllCodes(),
+				this.guess, this.answer);
+	}
+
+	@Benchmark
+	public CandidateSet removeInconsistentCodes() {
+		this.work.copyFrom(this.midGame);
+		this.strategy.removeInconsistent(this.work, this.guess, this.answer);
+		return this.work;
+	}
+
+	@Benchmark
+	public Code findShortestCode() {
+		return this.strategy.shortestCode(this.midGame);
+	}
+
+}
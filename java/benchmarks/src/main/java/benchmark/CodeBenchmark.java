@@ -0,0 +1,77 @@
+package benchmark;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import simulation.Simulation;
+import strategy.Answer;
+import strategy.Code;
+import strategy.FeedbackMatrix;
+import strategy.PackedCode;
+
+/**
+ * Benchmarks of comparing codes and creating the answers.
+ */
+@State(Scope.Thread)
+public class CodeBenchmark {
+
+	/** Number of random code pairs that are cycled through */
+	private static final int PAIRS = 1024;
+
+	@Param({ "3", "4", "5" })
+	public int length;
+
+	private Code[] guesses;
+	private Code[] secrets;
+	private FeedbackMatrix feedback;
+	private int next;
+
+	@Setup
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(42);
+		this.guesses = new Code[PAIRS];
+		this.secrets = new Code[PAIRS];
+		for (int i = 0; i < PAIRS; i++) {
+			this.guesses[i] = Simulation.createRandomCode(this.length, random);
+			this.secrets[i] = Simulation.createRandomCode(this.length, random);
+		}
+		this.feedback = FeedbackMatrix.forLength(this.length);
+	}
+
+	private int nextPair() {
+		this.next = (this.next + 1) & (PAIRS - 1);
+		return this.next;
+	}
+
+	@Benchmark
+	public Answer compare() {
+		int i = this.nextPair();
+		return this.guesses[i].compare(this.secrets[i]);
+	}
+
+	@Benchmark
+	public int comparePacked() {
+		int i = this.nextPair();
+		return PackedCode.compare(this.guesses[i].getIndex(),
+				this.secrets[i].getIndex(), this.length);
+	}
+
+	@Benchmark
+	public int feedbackMatrix() {
+		int i = this.nextPair();
+		return this.feedback.get(this.guesses[i].getIndex(),
+				this.secrets[i].getIndex());
+	}
+
+	@Benchmark
+	public List<Answer> createAllAnswers() {
+		return Answer.createAllAnswers(this.length);
+	}
+
+}
@@ -0,0 +1,48 @@
+package benchmark;
+
+import java.util.List;
+
+import strategy.Answer;
+import strategy.Code;
+import strategy.implementations.BasicStrategy;
+import strategy.search.CandidateSet;
+
+/**
+ * Makes the protected helpers of BasicStrategy accessible to the benchmarks.
+ */
+class ExposedStrategy extends BasicStrategy {
+
+	ExposedStrategy(int codeLength) {
+		super(codeLength);
+	}
+
+	@Override
+	public Code guess(Answer answer) {
+		throw new UnsupportedOperationException();
+	}
+
+	CandidateSet getConsistentCodes() {
+		return this.consistentCodes;
+	}
+
+	List<Code> getAllCodes() {
+		return this.allCodes;
+	}
+
+	void setLastButton(Code code) {
+		this.lastButton = code.get(this.CODE_LENGTH - 1);
+	}
+
+	List<Code> consistentCodes(List<Code> codes, Code lastGuess, Answer answer) {
+		return this.getConsistentCodes(codes, lastGuess, answer);
+	}
+
+	void removeInconsistent(CandidateSet codes, Code lastGuess, Answer answer) {
+		this.removeInconsistentCodes(codes, lastGuess, answer);
+	}
+
+	Code shortestCode(CandidateSet codes) {
+		return this.getShortestCode(codes);
+	}
+
+}
@@ -0,0 +1,63 @@
+package benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import simulation.Simulation;
+import strategy.Answer;
+import strategy.Code;
+import strategy.IDeterministicStrategy;
+
+/**
+ * Benchmark of a full guess of each strategy: The answer to the first guess
+ * of a game is processed and the second guess is chosen.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GuessBenchmark {
+
+	@Param({ "3", "4", "5" })
+	public int length;
+
+	@Param({ "Simple", "Knuth", "Entropy", "ExpectedSize", "MostParts" })
+	public String strategy;
+
+	/** Strategy in the state after the first guess */
+	private IDeterministicStrategy template;
+	/** Strategy that is reset to the template before every guess */
+	private IDeterministicStrategy work;
+	private Answer answer;
+
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		this.template = this.create();
+		this.work = this.create();
+		Code first = this.template.reset(null);
+		Code secret = Simulation.createRandomCode(this.length,
+				new SplittableRandom(42));
+		this.answer = first.compare(secret);
+	}
+
+	private IDeterministicStrategy create() throws ReflectiveOperationException {
+		return (IDeterministicStrategy) Class
+				.forName("strategy.implementations." + this.strategy)
+				.getConstructor(int.class).newInstance(this.length);
+	}
+
+	@Benchmark
+	public Code guess() {
+		this.work.copyStateFrom(this.template);
+		return this.work.guess(this.answer);
+	}
+
+}
@@ -0,0 +1,653 @@
+package server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import simulation.LatencyHistogram;
+import strategy.Answer;
+import strategy.Code;
+import strategy.IMastermindStrategy;
+import strategy.IStrategyFactory;
+import strategy.T;
+import strategy.engine.GameSession;
+import strategy.engine.IStrategyEngine;
+import strategy.engine.StrategyEngine;
+import strategy.implementations.Knuth;
+
+/**
+ * Serves the guesses of a strategy engine to clients on the loopback
+ * interface, so that robots and test rigs can play over a socket.
+ *
+ * The protocol is line based ASCII. Codes are written as the digits of their
+ * buttons, the first button first. A client chooses the ids of its games,
+ * which are only valid on its connection:
+ *
+ * <pre>
+ * NEW game [button]              -> GUESS game code
+ * ANSWER game blacks whites      -> GUESS game code
+ * END game                       -> END game
+ * STATS                          -> STATS requests p50 p99 max computed
+ * (invalid request)              -> ERROR game|- message
+ * </pre>
+ *
+ * NEW starts a game with the robot at 'button' (0-7, default the center).
+ * STATS reports the server latency of the NEW and ANSWER requests in
+ * milliseconds and how many guesses the engine computed for them. A client
+ * must wait for the guess of a game before it sends the next answer of that
+ * game (otherwise the answer is rejected as busy), but may have any number
+ * of games in flight, whose guesses arrive in any order. The guess of a game
+ * that was ended while it was computed is not sent. A connection is not read
+ * while MAX_QUEUED responses wait for the client to read them.
+ *
+ * One selector thread does all the I/O and the guesses are computed by a
+ * pool of worker threads that share the engine. The workers take the
+ * pending answers in batches of up to batchSize, so that games in the same
+ * state share the computation of their guess (see IStrategyEngine). A game
+ * only keeps its GameSession, so the memory per game is dominated by its
+ * candidate set.
+ */
+public class CodebreakerServer {
+
+	/** Port of the server, 0 for any free port */
+	private static final int PORT = 4711;
+	/** Number of buttons in the secret sequence */
+	private static final int CODE_LENGTH = 4;
+	/** Number of threads computing guesses */
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+	/** Maximum number of answers whose guesses are computed together */
+	private static final int BATCH_SIZE = 256;
+	/** Strategy of the games */
+	private static final IStrategyFactory STRATEGY = new IStrategyFactory() {
+		@Override
+		public IMastermindStrategy create(int codeLength) {
+			return new Knuth(codeLength);
+		}
+	};
+
+	/** Maximum length of a request line */
+	private static final int MAX_LINE = 64;
+	/** Maximum number of games of all connections */
+	public static final int MAX_GAMES = 100000;
+	/** Number of queued responses of a connection at which it is not read */
+	private static final int MAX_QUEUED = 1024;
+
+	private final IStrategyEngine engine;
+	private final ExecutorService workers;
+	private final int threads;
+	private final int batchSize;
+	private final Selector selector;
+	private final ServerSocketChannel server;
+	private final Thread thread;
+	/** Connections with new responses whose keys must be set to write */
+	private final ConcurrentLinkedQueue<Connection> writable = new ConcurrentLinkedQueue<Connection>();
+	/** Number of games of all connections */
+	private final AtomicInteger games = new AtomicInteger();
+	/** Latency of the NEW and ANSWER requests, guarded by itself */
+	private final LatencyHistogram latency = new LatencyHistogram();
+	/** Answers waiting for their guess */
+	private final ConcurrentLinkedQueue<Request> pending = new ConcurrentLinkedQueue<Request>();
+	/** Sessions whose guess is being computed */
+	private final Set<GameSession> busy = ConcurrentHashMap.newKeySet();
+	/** Number of submitted batch tasks that did not start yet */
+	private final AtomicInteger batches = new AtomicInteger();
+	/** Number of guesses the engine computed */
+	private final AtomicLong computed = new AtomicLong();
+	private volatile boolean running = true;
+
+	/**
+	 * Start a server on the loopback interface.
+	 *
+	 * @param engine
+	 *            Engine of the games
+	 * @param port
+	 *            Port or 0 for any free port
+	 * @param threads
+	 *            Number of threads computing guesses
+	 * @param batchSize
+	 *            Maximum number of answers whose guesses are computed
+	 *            together, 1 computes every guess on its own
+	 * @throws IOException
+	 *             If the port cannot be bound
+	 */
+	public CodebreakerServer(IStrategyEngine engine, int port, int threads,
+			int batchSize) throws IOException {
+		this.engine = engine;
+		this.threads = threads;
+		this.batchSize = batchSize;
+		this.selector = Selector.open();
+		this.server = ServerSocketChannel.open();
+		this.server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+				port));
+		this.server.configureBlocking(false);
+		this.server.register(this.selector, SelectionKey.OP_ACCEPT);
+		this.workers = Executors.newFixedThreadPool(threads,
+				new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "codebreaker-"
+								+ this.count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				serve();
+			}
+		}, "codebreaker-selector");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	public static void main(String[] args) throws IOException,
+			InterruptedException {
+		IStrategyEngine engine = new StrategyEngine(STRATEGY, CODE_LENGTH);
+		CodebreakerServer server = new CodebreakerServer(engine, PORT, THREADS,
+				BATCH_SIZE);
+		System.out.println("Serving " + engine + " with code length "
+				+ CODE_LENGTH + " on " + server.getAddress());
+		server.thread.join();
+	}
+
+	/**
+	 * Return the address the server listens on.
+	 *
+	 * @return Address
+	 * @throws IOException
+	 *             If the server is closed
+	 */
+	public InetSocketAddress getAddress() throws IOException {
+		return (InetSocketAddress) this.server.getLocalAddress();
+	}
+
+	/**
+	 * Return a copy of the latency histogram of the NEW and ANSWER requests
+	 * (from reading the request until the response is queued).
+	 *
+	 * @return Latency histogram
+	 */
+	public LatencyHistogram getLatency() {
+		LatencyHistogram copy = new LatencyHistogram();
+		synchronized (this.latency) {
+			copy.merge(this.latency);
+		}
+		return copy;
+	}
+
+	/**
+	 * Return the number of running games.
+	 *
+	 * @return Number of games
+	 */
+	public int getGames() {
+		return this.games.get();
+	}
+
+	/**
+	 * Return the number of guesses the engine computed, which is less than the
+	 * number of requests if games shared guesses.
+	 *
+	 * @return Number of computed guesses
+	 */
+	public long getComputed() {
+		return this.computed.get();
+	}
+
+	/**
+	 * Close all connections and stop the server.
+	 */
+	public void close() throws IOException, InterruptedException {
+		this.running = false;
+		this.selector.wakeup();
+		this.thread.join();
+		this.workers.shutdown();
+		this.workers.awaitTermination(1, TimeUnit.MINUTES);
+	}
+
+	private void serve() {
+		try {
+			while (this.running) {
+				this.selector.select();
+				Connection connection;
+				while ((connection = this.writable.poll()) != null) {
+					this.updateInterest(connection);
+				}
+				Iterator<SelectionKey> keys = this.selector.selectedKeys()
+						.iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					try {
+						if (key.isAcceptable()) {
+							this.accept();
+						} else {
+							connection = (Connection) key.attachment();
+							if (key.isReadable()) {
+								this.read(connection);
+								this.updateInterest(connection);
+							}
+							if (key.isValid() && key.isWritable()) {
+								this.write(connection);
+							}
+						}
+					} catch (IOException e) {
+						if (key.attachment() != null) {
+							this.close((Connection) key.attachment());
+						}
+					}
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			for (SelectionKey key : this.selector.keys()) {
+				if (key.attachment() != null) {
+					this.close((Connection) key.attachment());
+				}
+			}
+			try {
+				this.server.close();
+				this.selector.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel = this.server.accept();
+		if (channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		Connection connection = new Connection(channel);
+		connection.key = channel.register(this.selector, SelectionKey.OP_READ,
+				connection);
+	}
+
+	/**
+	 * Read the available bytes and handle every complete line.
+	 */
+	private void read(Connection connection) throws IOException {
+		ByteBuffer in = connection.in;
+		int n = connection.channel.read(in);
+		if (n < 0) {
+			this.close(connection);
+			return;
+		}
+		in.flip();
+		while (in.hasRemaining()) {
+			char c = (char) in.get();
+			if (c == '\n') {
+				this.handle(connection, connection.line.toString().trim());
+				connection.line.setLength(0);
+			} else if (connection.line.length() < MAX_LINE) {
+				connection.line.append(c);
+			} else {
+				this.close(connection);
+				return;
+			}
+		}
+		in.clear();
+	}
+
+	/**
+	 * Handle a request on the selector thread. Guesses are computed by the
+	 * workers.
+	 */
+	private void handle(final Connection connection, String line) {
+		final long start = System.nanoTime();
+		String[] words = line.split(" +");
+		String command = words[0];
+		final int game;
+		try {
+			if (command.equals("STATS") && words.length == 1) {
+				LatencyHistogram latency = this.getLatency();
+				this.send(connection, String.format(
+						"STATS %d %.4f %.4f %.4f %d", latency.getCount(),
+						latency.getPercentile(50), latency.getPercentile(99),
+						latency.getMax(), this.computed.get()));
+				return;
+			}
+			game = words.length > 1 ? Integer.parseInt(words[1]) : -1;
+		} catch (NumberFormatException e) {
+			this.send(connection, "ERROR - Invalid request");
+			return;
+		}
+		if (command.equals("NEW") && (words.length == 2 || words.length == 3)) {
+			final T button;
+			try {
+				button = words.length == 3 ? parseButton(words[2]) : null;
+			} catch (IllegalArgumentException e) {
+				this.send(connection, "ERROR " + game + " Invalid button");
+				return;
+			}
+			final GameSession session = this.createGame(connection, game);
+			if (session == null) {
+				return;
+			}
+			this.busy.add(session);
+			this.workers.execute(new Runnable() {
+				@Override
+				public void run() {
+					Code guess = engine.reset(session, button);
+					computed.incrementAndGet();
+					busy.remove(session);
+					respond(connection, game, session, guess, start);
+				}
+			});
+		} else if (command.equals("ANSWER") && words.length == 4) {
+			final Answer answer;
+			try {
+				answer = parseAnswer(words[2], words[3]);
+			} catch (IllegalArgumentException e) {
+				this.send(connection, "ERROR " + game + " Invalid answer");
+				return;
+			}
+			final GameSession session;
+			synchronized (connection) {
+				session = connection.games.get(game);
+			}
+			if (session == null) {
+				this.send(connection, "ERROR " + game + " Unknown game");
+				return;
+			}
+			if (!this.busy.add(session)) {
+				this.send(connection, "ERROR " + game + " Busy");
+				return;
+			}
+			this.pending.add(new Request(connection, game, session, answer,
+					start));
+			// Tasks that did not start yet will take the answer, otherwise
+			// another task is needed
+			if (this.batches.get() < this.threads) {
+				this.batches.incrementAndGet();
+				this.workers.execute(new Runnable() {
+					@Override
+					public void run() {
+						batches.decrementAndGet();
+						computeBatches();
+					}
+				});
+			}
+		} else if (command.equals("END") && words.length == 2) {
+			GameSession session;
+			synchronized (connection) {
+				session = connection.games.remove(game);
+			}
+			if (session == null) {
+				this.send(connection, "ERROR " + game + " Unknown game");
+				return;
+			}
+			this.games.decrementAndGet();
+			this.send(connection, "END " + game);
+		} else {
+			this.send(connection, "ERROR " + (game < 0 ? "-" : game)
+					+ " Invalid request");
+		}
+	}
+
+	/**
+	 * Compute the guesses of the pending answers in batches until there are
+	 * none left.
+	 */
+	private void computeBatches() {
+		Request[] requests = new Request[this.batchSize];
+		GameSession[] sessions = new GameSession[this.batchSize];
+		Answer[] answers = new Answer[this.batchSize];
+		Code[] guesses = new Code[this.batchSize];
+		while (true) {
+			int n = 0;
+			Request request;
+			while (n < this.batchSize && (request = this.pending.poll()) != null) {
+				requests[n] = request;
+				sessions[n] = request.session;
+				answers[n] = request.answer;
+				n++;
+			}
+			if (n == 0) {
+				return;
+			}
+			// A failure only affects the games of its group, whose guesses
+			// are null and whose sessions are not changed
+			String error = "Impossible answer";
+			try {
+				this.computed.addAndGet(this.engine.guess(sessions, answers,
+						guesses, n));
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+				error = "Internal error";
+			}
+			for (int i = 0; i < n; i++) {
+				request = requests[i];
+				this.busy.remove(request.session);
+				if (guesses[i] == null) {
+					this.send(request.connection, request.game,
+							request.session, "ERROR " + request.game + " "
+									+ error);
+				} else {
+					this.respond(request.connection, request.game,
+							request.session, guesses[i], request.start);
+				}
+				requests[i] = null;
+				sessions[i] = null;
+				guesses[i] = null;
+			}
+		}
+	}
+
+	/**
+	 * Register a new game of 'connection' or send an error and return null.
+	 */
+	private GameSession createGame(Connection connection, int game) {
+		synchronized (connection) {
+			if (connection.games.containsKey(game)) {
+				this.send(connection, "ERROR " + game + " Game exists");
+				return null;
+			}
+			if (this.games.incrementAndGet() > MAX_GAMES) {
+				this.games.decrementAndGet();
+				this.send(connection, "ERROR " + game + " Too many games");
+				return null;
+			}
+			GameSession session = this.engine.createSession();
+			connection.games.put(game, session);
+			return session;
+		}
+	}
+
+	private void respond(Connection connection, int game, GameSession session,
+			Code guess, long start) {
+		StringBuilder response = new StringBuilder("GUESS ").append(game)
+				.append(' ');
+		for (int i = 0; i < guess.getLength(); i++) {
+			response.append(guess.get(i).i);
+		}
+		if (!this.send(connection, game, session, response.toString())) {
+			return;
+		}
+		synchronized (this.latency) {
+			this.latency.record((System.nanoTime() - start) / 1e6);
+		}
+	}
+
+	/**
+	 * Queue a response line. May be called by any thread.
+	 */
+	private void send(Connection connection, String line) {
+		ByteBuffer bytes = ByteBuffer.wrap((line + "\n")
+				.getBytes(StandardCharsets.US_ASCII));
+		synchronized (connection) {
+			if (connection.closed) {
+				return;
+			}
+			connection.out.add(bytes);
+		}
+		this.writable.add(connection);
+		this.selector.wakeup();
+	}
+
+	/**
+	 * Queue a response line of 'game' unless the game was ended since
+	 * 'session' was taken from it. May be called by any thread.
+	 *
+	 * @return True, if the response was queued
+	 */
+	private boolean send(Connection connection, int game, GameSession session,
+			String line) {
+		synchronized (connection) {
+			if (connection.games.get(game) != session) {
+				return false;
+			}
+			this.send(connection, line);
+			return true;
+		}
+	}
+
+	/**
+	 * Write the queued responses until the socket buffer is full.
+	 */
+	private void write(Connection connection) throws IOException {
+		synchronized (connection) {
+			while (!connection.out.isEmpty()) {
+				ByteBuffer head = connection.out.peek();
+				connection.channel.write(head);
+				if (head.hasRemaining()) {
+					break;
+				}
+				connection.out.poll();
+			}
+		}
+		this.updateInterest(connection);
+	}
+
+	/**
+	 * Write while there are queued responses and read while there are less
+	 * than MAX_QUEUED, so that a client that does not read its responses
+	 * cannot fill the memory. Only called by the selector thread.
+	 */
+	private void updateInterest(Connection connection) {
+		synchronized (connection) {
+			if (!connection.key.isValid()) {
+				return;
+			}
+			int ops = 0;
+			if (connection.out.size() < MAX_QUEUED) {
+				ops |= SelectionKey.OP_READ;
+			}
+			if (!connection.out.isEmpty()) {
+				ops |= SelectionKey.OP_WRITE;
+			}
+			connection.key.interestOps(ops);
+		}
+	}
+
+	private void close(Connection connection) {
+		synchronized (connection) {
+			if (connection.closed) {
+				return;
+			}
+			connection.closed = true;
+			this.games.addAndGet(-connection.games.size());
+			connection.games.clear();
+			connection.out.clear();
+		}
+		connection.key.cancel();
+		try {
+			connection.channel.close();
+		} catch (IOException e) {
+			// Nothing left to do
+		}
+	}
+
+	private static T parseButton(String word) {
+		int i = Integer.parseInt(word);
+		if (i < 0 || i >= T.values().length) {
+			throw new IllegalArgumentException(word);
+		}
+		return T.get(i);
+	}
+
+	/**
+	 * Parse an answer whose pegs fit the length of the engine. Whether a code
+	 * can give it to the last guess of a game is checked by the engine.
+	 */
+	private Answer parseAnswer(String blacks, String whites) {
+		int b = Integer.parseInt(blacks);
+		int w = Integer.parseInt(whites);
+		if (b < 0 || w < 0 || b + w > this.engine.getCodeLength()) {
+			throw new IllegalArgumentException(blacks + " " + whites);
+		}
+		return Answer.valueOf(b, w);
+	}
+
+	/**
+	 * An answer waiting for its guess.
+	 */
+	private static class Request {
+
+		final Connection connection;
+		final int game;
+		final GameSession session;
+		final Answer answer;
+		/** Time the request was read */
+		final long start;
+
+		Request(Connection connection, int game, GameSession session,
+				Answer answer, long start) {
+			this.connection = connection;
+			this.game = game;
+			this.session = session;
+			this.answer = answer;
+			this.start = start;
+		}
+
+	}
+
+	/**
+	 * State of a client connection. The games and the responses are guarded
+	 * by the connection, the rest is only used by the selector thread.
+	 */
+	private static class Connection {
+
+		final SocketChannel channel;
+		SelectionKey key;
+		final ByteBuffer in = ByteBuffer.allocate(1024);
+		/** Incomplete request line */
+		final StringBuilder line = new StringBuilder();
+		/** Queued responses */
+		final ArrayDeque<ByteBuffer> out = new ArrayDeque<ByteBuffer>();
+		/** Sessions by game id */
+		final Map<Integer, GameSession> games = new HashMap<Integer, GameSession>();
+		boolean closed;
+
+		Connection(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+	}
+
+}
@@ -0,0 +1,223 @@
+package server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import simulation.LatencyHistogram;
+import simulation.Simulation;
+import strategy.Answer;
+import strategy.Code;
+import strategy.IMastermindStrategy;
+import strategy.IStrategyFactory;
+import strategy.T;
+import strategy.engine.StrategyEngine;
+import strategy.implementations.Knuth;
+
+/**
+ * Plays many concurrent games against a CodebreakerServer and reports the
+ * round trip latency of the requests.
+ *
+ * Every connection is driven by a thread of its own that keeps GAMES games
+ * in flight: it answers every guess as soon as it arrives and starts a new
+ * game when one is solved. Alter the constants and run this file.
+ */
+public class LoadGenerator {
+
+	/** Port of a running server or 0 to start one in this process */
+	private static final int PORT = 0;
+	/** Number of buttons in the secret sequence, must match the server */
+	private static final int CODE_LENGTH = 4;
+	/** Number of connections */
+	private static final int CONNECTIONS = 4;
+	/** Number of concurrent games per connection */
+	private static final int GAMES = 500;
+	/** Number of games each connection plays in total */
+	private static final int GAMES_PER_CONNECTION = 2000;
+	/**
+	 * Maximum number of answers whose guesses the server started in this
+	 * process computes together, 1 disables batching
+	 */
+	private static final int BATCH_SIZE = 256;
+	/** Seed for the secret codes */
+	private static final long SEED = 42;
+	/** Strategy of the server started in this process */
+	private static final IStrategyFactory STRATEGY = new IStrategyFactory() {
+		@Override
+		public IMastermindStrategy create(int codeLength) {
+			return new Knuth(codeLength);
+		}
+	};
+
+	public static void main(String[] args) throws Exception {
+		CodebreakerServer server = null;
+		int port = PORT;
+		if (port == 0) {
+			server = new CodebreakerServer(new StrategyEngine(STRATEGY,
+					CODE_LENGTH), 0, Runtime.getRuntime()
+					.availableProcessors(), BATCH_SIZE);
+			port = server.getAddress().getPort();
+		}
+		System.out.println("Connections:  " + CONNECTIONS);
+		System.out.println("Games:        " + CONNECTIONS * GAMES
+				+ " concurrent, " + CONNECTIONS * GAMES_PER_CONNECTION
+				+ " total");
+		System.out.println("Code length:  " + CODE_LENGTH);
+
+		ExecutorService executor = Executors.newFixedThreadPool(CONNECTIONS);
+		SplittableRandom root = new SplittableRandom(SEED);
+		List<Future<Result>> futures = new ArrayList<Future<Result>>();
+		long start = System.nanoTime();
+		for (int i = 0; i < CONNECTIONS; i++) {
+			futures.add(executor.submit(new Client(port, root.split())));
+		}
+		Result total = new Result();
+		for (Future<Result> future : futures) {
+			Result result = future.get();
+			total.latency.merge(result.latency);
+			total.guesses += result.guesses;
+			total.games += result.games;
+			if (total.stats == null) {
+				total.stats = result.stats;
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		executor.shutdown();
+
+		System.out.println();
+		System.out.printf("Games: %d  Guesses: %d (%.2f per game)\n",
+				total.games, total.guesses, 1.0 * total.guesses / total.games);
+		System.out.printf("Throughput: %.0f requests/s\n", total.latency
+				.getCount() / seconds);
+		System.out.printf(
+				"Round trip  p50: %.4f [ms]  p99: %.4f [ms]  max: %.4f [ms]\n",
+				total.latency.getPercentile(50),
+				total.latency.getPercentile(99), total.latency.getMax());
+		System.out.println("Server:     " + total.stats);
+		if (server != null) {
+			server.close();
+		}
+	}
+
+	/**
+	 * Results of a connection.
+	 */
+	private static class Result {
+
+		final LatencyHistogram latency = new LatencyHistogram();
+		long guesses;
+		int games;
+		/** Response to STATS at the end */
+		String stats;
+
+	}
+
+	/**
+	 * Plays the games of one connection.
+	 */
+	private static class Client implements Callable<Result> {
+
+		private final int port;
+		private final SplittableRandom random;
+		/** Secret code of every game slot */
+		private final Code[] secrets = new Code[GAMES];
+		/** Time the last request of every game slot was sent */
+		private final long[] sent = new long[GAMES];
+
+		Client(int port, SplittableRandom random) {
+			this.port = port;
+			this.random = random;
+		}
+
+		@Override
+		public Result call() throws IOException {
+			Result result = new Result();
+			Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+					this.port);
+			try {
+				socket.setTcpNoDelay(true);
+				BufferedReader in = new BufferedReader(new InputStreamReader(
+						socket.getInputStream(), StandardCharsets.US_ASCII));
+				Writer out = new OutputStreamWriter(socket.getOutputStream(),
+						StandardCharsets.US_ASCII);
+				int started = 0;
+				int running = 0;
+				for (int game = 0; game < GAMES
+						&& started < GAMES_PER_CONNECTION; game++) {
+					this.start(out, game);
+					started++;
+					running++;
+				}
+				out.flush();
+				while (running > 0) {
+					String[] words = in.readLine().split(" ");
+					if (!words[0].equals("GUESS") && !words[0].equals("END")) {
+						throw new IOException("Unexpected response "
+								+ String.join(" ", words));
+					}
+					int game = Integer.parseInt(words[1]);
+					if (words[0].equals("END")) {
+						if (started < GAMES_PER_CONNECTION) {
+							this.start(out, game);
+							started++;
+						} else {
+							running--;
+						}
+					} else {
+						result.latency.record((System.nanoTime() - this.sent[game])
+								/ 1e6);
+						result.guesses++;
+						Code guess = parseCode(words[2]);
+						if (guess.equals(this.secrets[game])) {
+							result.games++;
+							out.write("END " + game + "\n");
+						} else {
+							Answer answer = guess.compare(this.secrets[game]);
+							this.sent[game] = System.nanoTime();
+							out.write("ANSWER " + game + " " + answer.blacks
+									+ " " + answer.whites + "\n");
+						}
+					}
+					if (!in.ready()) {
+						out.flush();
+					}
+				}
+				out.write("STATS\n");
+				out.flush();
+				result.stats = in.readLine();
+			} finally {
+				socket.close();
+			}
+			return result;
+		}
+
+		private void start(Writer out, int game) throws IOException {
+			this.secrets[game] = Simulation.createRandomCode(CODE_LENGTH,
+					this.random);
+			this.sent[game] = System.nanoTime();
+			out.write("NEW " + game + "\n");
+		}
+
+		private static Code parseCode(String word) {
+			T[] ts = new T[word.length()];
+			for (int i = 0; i < ts.length; i++) {
+				ts[i] = T.get(word.charAt(i) - '0');
+			}
+			return new Code(ts);
+		}
+
+	}
+
+}
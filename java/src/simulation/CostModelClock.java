@@ -0,0 +1,35 @@
+package simulation;
+
+import strategy.Counters;
+
+/**
+ * A deterministic clock that charges a fixed time for every feedback
+ * evaluation of the strategy (see {@link Counters#EVALUATIONS}). The results
+ * only depend on the strategy and the secret codes, not on the machine.
+ */
+public class CostModelClock implements IClock {
+
+	/** Charged time per feedback evaluation in milliseconds */
+	private final double evaluationTime;
+
+	/**
+	 * Create a clock that charges 'evaluationTime' per feedback evaluation.
+	 * 
+	 * @param evaluationTime
+	 *            Time per feedback evaluation in milliseconds
+	 */
+	public CostModelClock(double evaluationTime) {
+		this.evaluationTime = evaluationTime;
+	}
+
+	@Override
+	public double currentTime() {
+		return Counters.get(Counters.EVALUATIONS) * this.evaluationTime;
+	}
+
+	@Override
+	public String toString() {
+		return "Cost model (" + this.evaluationTime + " ms/evaluation)";
+	}
+
+}
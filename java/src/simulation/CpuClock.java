@@ -0,0 +1,42 @@
+package simulation;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * The CPU time of the current thread, so that other processes and threads do
+ * not slow the strategy down. Work that a strategy delegates to other threads
+ * (see BasicStrategy.setParallel) is not included. Falls back to the real time
+ * if the JVM does not measure the CPU time of threads.
+ */
+public class CpuClock implements IClock {
+
+	private final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+	private final boolean supported;
+
+	public CpuClock() {
+		boolean supported = this.bean.isCurrentThreadCpuTimeSupported();
+		if (supported && !this.bean.isThreadCpuTimeEnabled()) {
+			try {
+				this.bean.setThreadCpuTimeEnabled(true);
+			} catch (UnsupportedOperationException e) {
+				supported = false;
+			}
+		}
+		this.supported = supported;
+	}
+
+	@Override
+	public double currentTime() {
+		if (this.supported) {
+			return this.bean.getCurrentThreadCpuTime() / 1e6;
+		}
+		return System.nanoTime() / 1e6;
+	}
+
+	@Override
+	public String toString() {
+		return this.supported ? "CPU" : "CPU (unsupported, real time)";
+	}
+
+}
@@ -0,0 +1,229 @@
+package simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import strategy.Answer;
+import strategy.Code;
+import strategy.IDeterministicStrategy;
+import strategy.IMastermindStrategy;
+import strategy.IStrategyFactory;
+import strategy.PackedCode;
+import strategy.T;
+
+/**
+ * Plays a strategy once against every secret code of a length, starting in
+ * the center each time, and reports the exact distribution of the number of
+ * guesses and the exact mean driving distance. One pass replaces many random
+ * simulations if the strategy is deterministic.
+ *
+ * The secret codes are split into blocks of fixed size and every block is
+ * played with its own strategy instance, so the results do not depend on the
+ * number of threads. Deterministic strategies are reset to the center before
+ * each secret code, every other strategy is created anew for each one.
+ */
+public class ExhaustiveEvaluation {
+
+	/** Number of secret codes played by one task */
+	private static final int BLOCK_SIZE = 64;
+	/** Games that are not solved after this many guesses count as unsolved */
+	public static final int MAX_GUESSES = 100;
+
+	/**
+	 * The results of an evaluation.
+	 */
+	public static class Result {
+
+		/** Number of secret codes solved with i guesses at index i */
+		private final int[] guessCounts = new int[MAX_GUESSES + 1];
+		/** Number of secret codes that were not solved */
+		private int unsolved;
+		/** Total number of secret codes */
+		private int secrets;
+		/** Sum of the driving distances of the solved games in mm */
+		private double drivingDistance;
+
+		private void add(int guesses, double distance) {
+			this.secrets++;
+			if (guesses > MAX_GUESSES) {
+				this.unsolved++;
+			} else {
+				this.guessCounts[guesses]++;
+				this.drivingDistance += distance;
+			}
+		}
+
+		private void merge(Result other) {
+			for (int i = 0; i < this.guessCounts.length; i++) {
+				this.guessCounts[i] += other.guessCounts[i];
+			}
+			this.unsolved += other.unsolved;
+			this.secrets += other.secrets;
+			this.drivingDistance += other.drivingDistance;
+		}
+
+		/**
+		 * Return the number of secret codes that were solved with exactly
+		 * 'guesses' guesses.
+		 *
+		 * @param guesses
+		 *            Number of guesses including the correct one
+		 * @return Number of secret codes
+		 */
+		public int getCount(int guesses) {
+			return guesses < this.guessCounts.length ? this.guessCounts[guesses]
+					: 0;
+		}
+
+		public int getSecrets() {
+			return this.secrets;
+		}
+
+		public int getUnsolved() {
+			return this.unsolved;
+		}
+
+		/**
+		 * Return the largest number of guesses that a solved game needed.
+		 *
+		 * @return Worst case or 0 if no game was solved
+		 */
+		public int getWorstCase() {
+			for (int i = this.guessCounts.length - 1; i > 0; i--) {
+				if (this.guessCounts[i] != 0) {
+					return i;
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * Return the mean number of guesses of the solved games.
+		 *
+		 * @return Mean number of guesses or 0 if no game was solved
+		 */
+		public double getMeanGuesses() {
+			if (this.secrets == this.unsolved) {
+				return 0;
+			}
+			long sum = 0;
+			for (int i = 0; i < this.guessCounts.length; i++) {
+				sum += (long) i * this.guessCounts[i];
+			}
+			return 1.0 * sum / (this.secrets - this.unsolved);
+		}
+
+		/**
+		 * Return the mean driving distance of the solved games.
+		 *
+		 * @return Mean driving distance in mm or 0 if no game was solved
+		 */
+		public double getMeanDrivingDistance() {
+			if (this.secrets == this.unsolved) {
+				return 0;
+			}
+			return this.drivingDistance / (this.secrets - this.unsolved);
+		}
+
+	}
+
+	private final int codeLength;
+	private final IStrategyFactory factory;
+	private final int threads;
+
+	/**
+	 * Create an evaluation of the strategies of 'factory'.
+	 *
+	 * @param codeLength
+	 *            Code length
+	 * @param factory
+	 *            Creates the strategies
+	 * @param threads
+	 *            Number of threads that play games
+	 */
+	public ExhaustiveEvaluation(int codeLength, IStrategyFactory factory,
+			int threads) {
+		this.codeLength = codeLength;
+		this.factory = factory;
+		this.threads = threads;
+	}
+
+	/**
+	 * Play against every secret code and return the results.
+	 *
+	 * @return Results
+	 */
+	public Result run() {
+		int count = 1 << (PackedCode.BITS * this.codeLength);
+		ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+		try {
+			List<Future<Result>> futures = new ArrayList<Future<Result>>();
+			for (int from = 0; from < count; from += BLOCK_SIZE) {
+				final int first = from;
+				final int last = Math.min(from + BLOCK_SIZE, count);
+				futures.add(executor.submit(new Callable<Result>() {
+					@Override
+					public Result call() {
+						return play(first, last);
+					}
+				}));
+			}
+			Result result = new Result();
+			for (Future<Result> future : futures) {
+				result.merge(future.get());
+			}
+			return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Play against the secret codes with the indices 'from' (inclusive) to
+	 * 'to' (exclusive).
+	 */
+	private Result play(int from, int to) {
+		Result result = new Result();
+		IMastermindStrategy strategy = this.factory.create(this.codeLength);
+		int solved = Answer.id(this.codeLength, 0);
+		for (int secret = from; secret < to; secret++) {
+			Code guess;
+			if (strategy instanceof IDeterministicStrategy) {
+				guess = ((IDeterministicStrategy) strategy).reset(null);
+			} else {
+				if (secret != from) {
+					strategy = this.factory.create(this.codeLength);
+				}
+				guess = strategy.reset();
+			}
+			T lastButton = null;
+			double distance = 0;
+			int guesses = 1;
+			while (true) {
+				distance += Simulation.calculateDrivingDistance(lastButton,
+						guess);
+				lastButton = guess.get(this.codeLength - 1);
+				int answer = PackedCode.compare(guess.getIndex(), secret,
+						this.codeLength);
+				if (answer == solved || guesses > MAX_GUESSES) {
+					break;
+				}
+				guess = strategy.guess(Answer.fromId(answer));
+				guesses++;
+			}
+			result.add(guesses, distance);
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,16 @@
+package simulation;
+
+/**
+ * Measures the thinking time of a strategy. Only differences between two
+ * readings on the same thread are meaningful.
+ */
+public interface IClock {
+
+	/**
+	 * Return the current reading of the clock for the current thread.
+	 * 
+	 * @return Time in milliseconds
+	 */
+	double currentTime();
+
+}
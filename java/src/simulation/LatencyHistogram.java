@@ -0,0 +1,119 @@
+package simulation;
+
+/**
+ * A histogram of latencies with logarithmic buckets.
+ *
+ * Latencies are recorded in nanoseconds. Values below 16 ns get a bucket of
+ * their own, every larger power of two is split into 8 buckets, so a
+ * percentile is at most 12.5% above the true value. Recording is a few
+ * arithmetic operations on a fixed array and never allocates.
+ */
+public class LatencyHistogram {
+
+	/** Number of linear buckets per power of two (log2) */
+	private static final int SUB_BITS = 3;
+	/** Values below this have a bucket of their own */
+	private static final int LINEAR = 2 << SUB_BITS;
+	/** Number of buckets for all non-negative long values */
+	private static final int BUCKETS = LINEAR + (63 - SUB_BITS - 1)
+			* (1 << SUB_BITS);
+
+	private final long[] counts = new long[BUCKETS];
+	private long count;
+	private long max;
+	private double sum;
+
+	/**
+	 * Record a latency.
+	 *
+	 * @param millis
+	 *            Latency in milliseconds
+	 */
+	public void record(double millis) {
+		long nanos = Math.max(0, (long) (millis * 1e6));
+		this.counts[bucket(nanos)]++;
+		this.count++;
+		this.sum += millis;
+		if (nanos > this.max) {
+			this.max = nanos;
+		}
+	}
+
+	/**
+	 * Add the recorded latencies of 'other' to this histogram.
+	 *
+	 * @param other
+	 *            Another histogram
+	 */
+	public void merge(LatencyHistogram other) {
+		for (int i = 0; i < BUCKETS; i++) {
+			this.counts[i] += other.counts[i];
+		}
+		this.count += other.count;
+		this.sum += other.sum;
+		this.max = Math.max(this.max, other.max);
+	}
+
+	public long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Return the mean latency.
+	 *
+	 * @return Mean in milliseconds or 0 if nothing was recorded
+	 */
+	public double getMean() {
+		return this.count == 0 ? 0 : this.sum / this.count;
+	}
+
+	/**
+	 * Return the largest latency.
+	 *
+	 * @return Maximum in milliseconds
+	 */
+	public double getMax() {
+		return this.max / 1e6;
+	}
+
+	/**
+	 * Return the latency that 'percentile' percent of the recorded latencies
+	 * do not exceed, i.e. the upper end of the bucket containing it.
+	 *
+	 * @param percentile
+	 *            Percentile between 0 and 100
+	 * @return Latency in milliseconds or 0 if nothing was recorded
+	 */
+	public double getPercentile(double percentile) {
+		long rank = (long) Math.ceil(percentile / 100 * this.count);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += this.counts[i];
+			if (seen >= rank && seen > 0) {
+				return Math.min(upperBound(i), this.max) / 1e6;
+			}
+		}
+		return this.max / 1e6;
+	}
+
+	private static int bucket(long nanos) {
+		if (nanos < LINEAR) {
+			return (int) nanos;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int sub = (int) (nanos >>> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+		return LINEAR + ((exponent - SUB_BITS - 1) << SUB_BITS) + sub;
+	}
+
+	/** Largest value that falls into 'bucket' */
+	private static long upperBound(int bucket) {
+		if (bucket < LINEAR) {
+			return bucket;
+		}
+		int exponent = ((bucket - LINEAR) >>> SUB_BITS) + SUB_BITS + 1;
+		long sub = (bucket - LINEAR) & ((1 << SUB_BITS) - 1);
+		long lower = (1L << exponent) + (sub << (exponent - SUB_BITS));
+		return lower + (1L << (exponent - SUB_BITS)) - 1;
+	}
+
+}
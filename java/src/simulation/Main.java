@@ -1,13 +1,16 @@
 package simulation;
 
 import java.text.DecimalFormat;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import strategy.IMastermindStrategy;
+import strategy.IStrategyFactory;
+import strategy.cache.CachingStrategy;
+import strategy.cache.GuessCache;
 import strategy.implementations.*;
+import strategy.speculative.SpeculativeStrategy;
 
 /**
  * Alter the constants and run this file to see the results of the simulation. 
@@ -24,35 +27,99 @@ public class Main {
 	private static final double CPU_SLOWNESS = 0;
 	/** The higher the value the more precise the results will be */
 	private static final int SIMULATIONS = 10;
+	/** Number of threads running the simulations */
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+	/** Seed for the secret codes. The same seed gives the same secret codes */
+	private static final long SEED = 42;
+	/** Measures the thinking time, e.g. new CpuClock() or new CostModelClock(0.00001) */
+	private static final IClock CLOCK = new NanoClock();
+	/**
+	 * Thinking time per guess in milliseconds (multiplied with CPU_SLOWNESS)
+	 * after which strategies that support it return their best guess so far
+	 */
+	private static final double BUDGET = Double.POSITIVE_INFINITY;
+	/**
+	 * Compute the next guesses for all answers while the robot drives (see
+	 * SpeculativeStrategy). Needs a deterministic strategy and a real time
+	 * clock
+	 */
+	private static final boolean SPECULATIVE = false;
+	/**
+	 * Score guesses on a random sample of at most this many consistent codes
+	 * (0 scores on all of them). Only for subclasses of BasicStrategy
+	 */
+	private static final int CODE_SAMPLE = 0;
+	/** Score at most this many guesses if sampling (0 scores all of them) */
+	private static final int GUESS_SAMPLE = 0;
+	/**
+	 * Memory in bytes for a cache of the guesses that all threads share (0
+	 * disables it, see CachingStrategy). Needs a deterministic strategy. The
+	 * warm-up fills the cache as well
+	 */
+	private static final long CACHE_MEMORY = 0;
+	/** Number of simulations run and dropped before the measured ones */
+	private static final int WARM_UP = 2;
+	/**
+	 * Play once against every secret code instead of the timed simulations.
+	 * Gives exact values for deterministic strategies
+	 */
+	private static final boolean EXHAUSTIVE = false;
 	/** Strategy that will be used in the simulation */
-	private static final IMastermindStrategy STRATEGY = new Knuth(CODE_LENGTH);
+	private static final IStrategyFactory STRATEGY = new IStrategyFactory() {
+		@Override
+		public IMastermindStrategy create(int codeLength) {
+			return new Knuth(codeLength);
+		}
+	};
 
 	public static void main(String[] args) {
 		printTitle();
-		printParameters();
-		Simulation simulation;
-		Statistics statistics;
-		List<Statistics> statisticsList = new ArrayList<Statistics>();
-		int progress = 0;
-		for (int i = 0; i < SIMULATIONS; i++) {
-			simulation = new Simulation(TIME_LIMIT, CPU_SLOWNESS, 
-					ROBOT_SPEED, CODE_LENGTH, STRATEGY);
-			statistics = simulation.run();
-			statisticsList.add(statistics);
-			// Print the progress
-			double doneYet = 1.0 * i / SIMULATIONS;
-			for (int j = 1; j <= 10; j++) {
-				if (doneYet >= (1.0 * j / 10) && progress < j) {
-					System.out.print("^");
-					progress += 1;
-				}
-			}
+		IStrategyFactory factory = STRATEGY;
+		if (CODE_SAMPLE > 0) {
+			factory = BasicStrategy.withSampling(factory, CODE_SAMPLE,
+					GUESS_SAMPLE, SEED);
+		}
+		GuessCache cache = null;
+		if (CACHE_MEMORY > 0) {
+			cache = new GuessCache(CACHE_MEMORY);
+			factory = CachingStrategy.wrap(factory, cache);
 		}
+		if (SPECULATIVE) {
+			factory = SpeculativeStrategy.wrap(factory);
+		}
+		if (EXHAUSTIVE) {
+			evaluateExhaustively(factory);
+			printCache(cache);
+			return;
+		}
+		printParameters();
+		ParallelSimulation simulation = new ParallelSimulation(TIME_LIMIT,
+				CPU_SLOWNESS, ROBOT_SPEED, CODE_LENGTH, factory, THREADS);
+		simulation.setClock(CLOCK);
+		simulation.setBudget(BUDGET);
+		simulation.warmUp(WARM_UP);
+		List<Statistics> statisticsList = simulation.run(SIMULATIONS, SEED,
+				new ParallelSimulation.IProgressListener() {
+					private int progress = 0;
+
+					@Override
+					public void progress(int finished, int total) {
+						// Print the progress
+						double doneYet = 1.0 * finished / total;
+						for (int j = 1; j <= 10; j++) {
+							if (doneYet >= (1.0 * j / 10) && progress < j) {
+								System.out.print("^");
+								progress += 1;
+							}
+						}
+					}
+				});
 		printResults(statisticsList);
+		printCache(cache);
 	}
 	
 	private static void printTitle() {
-		String title = "Testing '" + STRATEGY + "'" + "\n";
+		String title = "Testing '" + STRATEGY.create(CODE_LENGTH) + "'" + "\n";
 		int length = title.length() - 1;
 		for (int i = 0; i < length; i++) {
 			title += "=";
@@ -61,12 +128,66 @@ public class Main {
 		System.out.println();
 	}
 	
+	private static void evaluateExhaustively(IStrategyFactory factory) {
+		System.out.println("Code Length:  " + CODE_LENGTH);
+		System.out.println("Robot Speed:  " + ROBOT_SPEED + " [mm/s]");
+		System.out.println("Threads:      " + THREADS);
+		printOptions();
+		System.out.println();
+		ExhaustiveEvaluation.Result result = new ExhaustiveEvaluation(
+				CODE_LENGTH, factory, THREADS).run();
+		System.out.println("Results");
+		System.out.println("-------");
+		System.out.println();
+		System.out.println("Secrets:    " + result.getSecrets());
+		System.out.println("Unsolved:   " + result.getUnsolved());
+		if (result.getUnsolved() == result.getSecrets()) {
+			System.out.println("No solved games");
+			return;
+		}
+		System.out.println("Worst Case: " + result.getWorstCase() + " [Guesses]");
+		System.out.printf("Expected:   %.5f [Guesses/Success]\n",
+				result.getMeanGuesses());
+		System.out.printf("Distance:   %.2f [mm/Success]\n",
+				result.getMeanDrivingDistance());
+		System.out.printf("Driving:    %.2f [s/Success]\n",
+				result.getMeanDrivingDistance() / ROBOT_SPEED);
+		System.out.println();
+		System.out.println("| Guesses | Secrets |");
+		System.out.println("|===================|");
+		for (int i = 1; i <= result.getWorstCase(); i++) {
+			System.out.printf("| %7d | %7d |\n", i, result.getCount(i));
+		}
+	}
+
+	/** Print the options that wrap or configure the strategy */
+	private static void printOptions() {
+		System.out.println("Speculative:  " + SPECULATIVE);
+		if (CODE_SAMPLE > 0) {
+			System.out.println("Sampling:     " + CODE_SAMPLE + " codes, "
+					+ (GUESS_SAMPLE > 0 ? GUESS_SAMPLE : "all") + " guesses");
+		}
+		System.out.println("Cache:        " + CACHE_MEMORY + " [bytes]");
+	}
+
+	private static void printCache(GuessCache cache) {
+		if (cache != null) {
+			System.out.println();
+			System.out.println("Cache: " + cache);
+		}
+	}
+
 	private static void printParameters() {
 		System.out.println("Time Limit:   " + TIME_LIMIT + " [s]");
 		System.out.println("Robot Speed:  " + ROBOT_SPEED + " [mm/s]");
 		System.out.println("Code Length:  " + CODE_LENGTH);
 		System.out.println("CPU Slowness: " + CPU_SLOWNESS);
 		System.out.println("Simulations:  " + SIMULATIONS);
+		System.out.println("Threads:      " + THREADS);
+		System.out.println("Clock:        " + CLOCK);
+		System.out.println("Budget:       " + BUDGET + " [ms/Guess]");
+		printOptions();
+		System.out.println("Warm-up:      " + WARM_UP);
 		System.out.println();
 		// Print progress bar
 		System.out.println("[..........]");
@@ -156,7 +277,45 @@ public class Main {
 			}
 			System.out.printf("%s | ", formatted);
 		}
-		System.out.print("[%]");
+		System.out.println("[%]");
+		printLatencies(statisticsList);
+	}
+
+	private static void printLatencies(List<Statistics> statisticsList) {
+		Statistics total = new Statistics();
+		for (Statistics s : statisticsList) {
+			total.merge(s);
+		}
+		LatencyHistogram latency = total.getLatency();
+		System.out.println();
+		System.out.println("Thinking Time per Guess");
+		System.out.println("-----------------------");
+		System.out.println();
+		System.out.printf("p50: %.4f [ms]  p99: %.4f [ms]  max: %.4f [ms]\n",
+				latency.getPercentile(50), latency.getPercentile(99),
+				latency.getMax());
+		if (total.getSampledGuesses() > 0) {
+			System.out.printf("Sampled: %d guesses, part size error <= %.4f"
+					+ " (mean) %.4f (max) with %.0f%% confidence\n",
+					total.getSampledGuesses(), total.getMeanErrorBound(),
+					total.getMaxErrorBound(), Statistics.CONFIDENCE * 100);
+		}
+		System.out.println();
+		System.out.println("| Round |  Guesses |  p50 [ms] |  p99 [ms] |  max [ms] | Evaluations | Scored | Candidates |");
+		System.out.println("|=========================================================================================|");
+		for (int round = 1; round <= Statistics.MAX_ROUND; round++) {
+			LatencyHistogram h = total.getLatency(round);
+			if (h.getCount() == 0) {
+				continue;
+			}
+			System.out.printf("| %s | %8d | %9.4f | %9.4f | %9.4f | %11.0f | %6.0f | %10.1f |\n",
+					round < Statistics.MAX_ROUND ? String.format("%5d", round)
+							: String.format(">=%3d", round), h.getCount(),
+					h.getPercentile(50), h.getPercentile(99), h.getMax(),
+					total.getMeanEvaluations(round),
+					total.getMeanScoredGuesses(round),
+					total.getMeanCandidates(round));
+		}
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package simulation;
+
+/**
+ * The elapsed real time with the resolution of System.nanoTime().
+ */
+public class NanoClock implements IClock {
+
+	@Override
+	public double currentTime() {
+		return System.nanoTime() / 1e6;
+	}
+
+	@Override
+	public String toString() {
+		return "Nano";
+	}
+
+}
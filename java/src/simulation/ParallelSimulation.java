@@ -0,0 +1,180 @@
+package simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import strategy.IStrategyFactory;
+
+/**
+ * Runs many simulations with the same configuration on multiple threads.
+ * 
+ * Every simulation gets its own strategy instance from the factory, so
+ * simulations never share state, and its own random stream split off a
+ * seeded root stream in the order of the simulations. Thus the secret codes
+ * of the i-th simulation only depend on the seed and i, and not on the
+ * number of threads or the scheduling.
+ */
+public class ParallelSimulation {
+
+	/**
+	 * Is informed about every finished simulation.
+	 */
+	public interface IProgressListener {
+
+		/**
+		 * Called in the order of the simulations from the thread that called
+		 * run.
+		 * 
+		 * @param finished
+		 *            Number of finished simulations
+		 * @param total
+		 *            Number of simulations
+		 */
+		void progress(int finished, int total);
+
+	}
+
+	private final int timeLimit;
+	private final double CPUSlowness;
+	private final double robotSpeed;
+	private final int codeLength;
+	private final IStrategyFactory factory;
+	private final int threads;
+	/** Measures the thinking time of every simulation */
+	private IClock clock = new NanoClock();
+	/** Thinking time per guess of every simulation in milliseconds */
+	private double budget = Double.POSITIVE_INFINITY;
+
+	/**
+	 * Create a runner with the specified configuration.
+	 * 
+	 * @param timeLimit
+	 *            Time limit in seconds
+	 * @param CPUSlowness
+	 *            Multiplied with the thinking time to simulate a slower cpu
+	 * @param robotSpeed
+	 *            Speed in mm/second
+	 * @param codeLength
+	 *            Code length
+	 * @param factory
+	 *            Creates the strategy of every simulation
+	 * @param threads
+	 *            Number of threads that run simulations
+	 */
+	public ParallelSimulation(int timeLimit, double CPUSlowness,
+			double robotSpeed, int codeLength, IStrategyFactory factory,
+			int threads) {
+		this.timeLimit = timeLimit;
+		this.CPUSlowness = CPUSlowness;
+		this.robotSpeed = robotSpeed;
+		this.codeLength = codeLength;
+		this.factory = factory;
+		this.threads = threads;
+	}
+
+	/**
+	 * Set the clock that measures the thinking time. The clock is shared by
+	 * all threads. Defaults to a {@link NanoClock}.
+	 * 
+	 * @param clock
+	 *            Clock
+	 */
+	public void setClock(IClock clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * Set the thinking time per guess (see Simulation.setBudget).
+	 * 
+	 * @param budget
+	 *            Thinking time per guess in milliseconds
+	 */
+	public void setBudget(double budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Run simulations whose results are dropped, so that the measured runs
+	 * are not slowed down by class loading, the JIT compiler and the creation
+	 * of the lookup tables.
+	 * 
+	 * @param simulations
+	 *            Number of simulations
+	 */
+	public void warmUp(int simulations) {
+		this.run(simulations, ~0L, null);
+	}
+
+	/**
+	 * Run the simulations and return their statistics in order.
+	 * 
+	 * @param simulations
+	 *            Number of simulations
+	 * @param seed
+	 *            Seed of the secret codes
+	 * @param listener
+	 *            Informed about the progress or null
+	 * @return Statistics of every simulation
+	 */
+	public List<Statistics> run(int simulations, long seed,
+			IProgressListener listener) {
+		ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+		try {
+			SplittableRandom root = new SplittableRandom(seed);
+			List<Future<Statistics>> futures = new ArrayList<Future<Statistics>>();
+			for (int i = 0; i < simulations; i++) {
+				final SplittableRandom random = root.split();
+				futures.add(executor.submit(new Callable<Statistics>() {
+					@Override
+					public Statistics call() {
+						Simulation simulation = new Simulation(timeLimit,
+								CPUSlowness, robotSpeed, codeLength,
+								factory.create(codeLength), random);
+						simulation.setClock(clock);
+						simulation.setBudget(budget);
+						return simulation.run();
+					}
+				}));
+			}
+			List<Statistics> result = new ArrayList<Statistics>();
+			for (Future<Statistics> future : futures) {
+				result.add(future.get());
+				if (listener != null) {
+					listener.progress(result.size(), simulations);
+				}
+			}
+			return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Run the simulations and return their merged statistics.
+	 * 
+	 * @param simulations
+	 *            Number of simulations
+	 * @param seed
+	 *            Seed of the secret codes
+	 * @return Merged statistics
+	 */
+	public Statistics runMerged(int simulations, long seed) {
+		Statistics result = new Statistics();
+		for (Statistics statistics : this.run(simulations, seed, null)) {
+			result.merge(statistics);
+		}
+		return result;
+	}
+
+}
@@ -1,10 +1,19 @@
 package simulation;
 
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import strategy.Answer;
 import strategy.Code;
+import strategy.Counters;
+import strategy.IAnytimeStrategy;
+import strategy.IAsyncStrategy;
+import strategy.IDeadline;
 import strategy.IMastermindStrategy;
+import strategy.PackedCode;
+import strategy.RouteTable;
 import strategy.T;
 
 /**
@@ -16,8 +25,8 @@ public class Simulation {
 
 	/** Strategy that will be used in the simulation */
 	private IMastermindStrategy strategy;
-	/** Secret button sequence to be found by the robot */
-	private Code secretCode;
+	/** Secret button sequence to be found by the robot (packed) */
+	private int secretCode;
 	/** Time limit in milliseconds */
 	private int timeLimit;
 	/** Multiplied with the thinking time to simulate a slower cpu */
@@ -28,6 +37,34 @@ public class Simulation {
 	private int codeLength;
 	/** Last position of the robot */
 	private T lastButton;
+	/** Source of the secret codes */
+	private SplittableRandom random;
+	/** Driving distances of the codes */
+	private RouteTable routes;
+	/** Measures the thinking time */
+	private IClock clock = new NanoClock();
+	/** Thinking time per guess of an IAnytimeStrategy in milliseconds */
+	private double budget = Double.POSITIVE_INFINITY;
+	/** Expires when the current guess used up the budget */
+	private final IDeadline deadline = new IDeadline() {
+		@Override
+		public boolean isExpired() {
+			return (clock.currentTime() - timer) * CPUSlowness >= budget;
+		}
+	};
+	/** Thinking time of the current run in milliseconds */
+	private double thinkingTime;
+	/** Clock reading at the start of the current guess */
+	private double timer;
+	/** Clock reading when the last guess was issued */
+	private double issued;
+	/** Driving time of the last guess in milliseconds */
+	private double lastDrivingTime;
+	/** Counter values at the start of the current guess */
+	private long evaluations;
+	private long scoredGuesses;
+	private long candidates;
+	private long sampleSize;
 
 	/**
 	 * Create a simulation with the specified configuration.
@@ -45,13 +82,64 @@ public class Simulation {
 	 */
 	public Simulation(int timeLimit, double CPUSlowness,
 			double robotSpeed, int codeLength, IMastermindStrategy strategy) {
+		this(timeLimit, CPUSlowness, robotSpeed, codeLength, strategy,
+				new SplittableRandom());
+	}
+
+	/**
+	 * Create a simulation with the specified configuration whose secret codes
+	 * are drawn from 'random'.
+	 * 
+	 * @param timeLimit
+	 *            Time limit in seconds
+	 * @param CPUSlowness
+	 *            Multiplied with the thinking time to simulate a slower cpu
+	 * @param robotSpeed
+	 *            Speed in mm/second
+	 * @param codeLength
+	 *            Code length
+	 * @param strategy
+	 *            Used strategy
+	 * @param random
+	 *            Source of the secret codes
+	 */
+	public Simulation(int timeLimit, double CPUSlowness,
+			double robotSpeed, int codeLength, IMastermindStrategy strategy,
+			SplittableRandom random) {
 		// Convert from seconds to milliseconds
 		this.timeLimit = timeLimit * 1000;
 		this.CPUSlowness = CPUSlowness;
 		this.robotSpeed = robotSpeed;
 		this.codeLength = codeLength;
 		this.strategy = strategy;
-		this.secretCode = createRandomCode(this.codeLength);
+		this.random = random;
+		this.routes = RouteTable.forLength(codeLength);
+		this.secretCode = createRandomCode(this.codeLength, this.random)
+				.getIndex();
+	}
+
+	/**
+	 * Set the clock that measures the thinking time. Defaults to a
+	 * {@link NanoClock}.
+	 * 
+	 * @param clock
+	 *            Clock
+	 */
+	public void setClock(IClock clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * Set the thinking time per guess. Strategies that implement
+	 * IAnytimeStrategy return their best guess so far once the thinking time
+	 * multiplied with the CPU slowness exceeds it, other strategies ignore it.
+	 * Defaults to no limit.
+	 * 
+	 * @param budget
+	 *            Thinking time per guess in milliseconds
+	 */
+	public void setBudget(double budget) {
+		this.budget = budget;
 	}
 
 	/**
@@ -61,42 +149,116 @@ public class Simulation {
 	 */
 	public Statistics run() {
 		Statistics statistics = new Statistics();
-		double thinkingTime = 0; // milliseconds
 		double drivingTime = 0; // milliseconds
-		long timer;
+		this.thinkingTime = 0;
 		Code guess;
+		int solved = Answer.id(this.codeLength, 0);
 		this.lastButton = null;
-		timer = System.currentTimeMillis();
-		guess = this.strategy.reset();
-		thinkingTime += (System.currentTimeMillis() - timer)
-				* this.CPUSlowness;
-		drivingTime += this.calculateDrivingTime(guess);
-
-		while (drivingTime + thinkingTime < this.timeLimit) {
-			Answer answer = guess.compare(this.secretCode);
-			if (answer.blacks == this.codeLength) {
-				this.secretCode = createRandomCode(this.codeLength);
-				timer = System.currentTimeMillis();
-				guess = this.strategy.reset();
-				thinkingTime += (System.currentTimeMillis() - timer)
-						* this.CPUSlowness;
+		guess = this.timedReset(statistics);
+		this.lastDrivingTime = this.calculateDrivingTime(guess);
+		drivingTime += this.lastDrivingTime;
+
+		while (drivingTime + this.thinkingTime < this.timeLimit) {
+			int answer = PackedCode.compare(guess.getIndex(), this.secretCode,
+					this.codeLength);
+			if (answer == solved) {
+				this.secretCode = createRandomCode(this.codeLength,
+						this.random).getIndex();
 				statistics.reset();
+				guess = this.timedReset(statistics);
 			} else {
-				timer = System.currentTimeMillis();
-				guess = this.strategy.guess(answer);
-				thinkingTime += (System.currentTimeMillis() - timer)
-						* this.CPUSlowness;
 				statistics.count();
+				guess = this.timedGuess(statistics, answer);
 			}
-			drivingTime += this.calculateDrivingTime(guess);
+			this.lastDrivingTime = this.calculateDrivingTime(guess);
+			drivingTime += this.lastDrivingTime;
 			this.lastButton = guess.get(this.codeLength - 1);
 		}
 
 		statistics.addDrivingTime(drivingTime);
-		statistics.addThinkingTime(thinkingTime);
+		statistics.addThinkingTime(this.thinkingTime);
 		return statistics;
 	}
 
+	/**
+	 * Reset the strategy, add the thinking time and record the guess.
+	 */
+	private Code timedReset(Statistics statistics) {
+		this.startGuess();
+		Code guess = this.strategy.reset();
+		this.endGuess(statistics);
+		return guess;
+	}
+
+	/**
+	 * Let the strategy guess, add the thinking time and record the guess.
+	 * 
+	 * An IAsyncStrategy thinks in the background from the moment the last
+	 * guess was issued, while the robot drives. Only the part of that time
+	 * that exceeds the driving time of the last guess is thinking time.
+	 */
+	private Code timedGuess(Statistics statistics, int answer) {
+		this.startGuess();
+		Code guess;
+		if (this.strategy instanceof IAsyncStrategy) {
+			guess = await(((IAsyncStrategy) this.strategy).guessAsync(Answer
+					.fromId(answer)));
+			double busy = (this.clock.currentTime() - this.issued)
+					* this.CPUSlowness;
+			this.endGuess(statistics,
+					Math.max(0, busy - this.lastDrivingTime));
+			return guess;
+		} else if (this.budget < Double.POSITIVE_INFINITY
+				&& this.strategy instanceof IAnytimeStrategy) {
+			guess = ((IAnytimeStrategy) this.strategy).guess(
+					Answer.fromId(answer), this.deadline);
+		} else {
+			guess = this.strategy.guess(Answer.fromId(answer));
+		}
+		this.endGuess(statistics);
+		return guess;
+	}
+
+	private static Code await(Future<Code> guess) {
+		try {
+			return guess.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private void startGuess() {
+		this.evaluations = Counters.get(Counters.EVALUATIONS);
+		this.scoredGuesses = Counters.get(Counters.SCORED_GUESSES);
+		this.candidates = Counters.get(Counters.CANDIDATES);
+		this.sampleSize = Counters.get(Counters.SAMPLE_SIZE);
+		this.timer = this.clock.currentTime();
+	}
+
+	private void endGuess(Statistics statistics) {
+		this.endGuess(statistics, (this.clock.currentTime() - this.timer)
+				* this.CPUSlowness);
+	}
+
+	/**
+	 * Add 'thinkingTime' and record the guess with the time the simulation
+	 * waited for it.
+	 */
+	private void endGuess(Statistics statistics, double thinkingTime) {
+		double now = this.clock.currentTime();
+		this.thinkingTime += thinkingTime;
+		statistics.recordGuess(now - this.timer, Counters
+				.get(Counters.EVALUATIONS)
+				- this.evaluations, Counters.get(Counters.SCORED_GUESSES)
+				- this.scoredGuesses, Counters.get(Counters.CANDIDATES)
+				- this.candidates, Counters.get(Counters.SAMPLE_SIZE)
+				- this.sampleSize);
+		this.issued = this.clock.currentTime();
+	}
+
 	/**
 	 * Create and return a random code of specified length.
 	 * 
@@ -108,7 +270,25 @@ public class Simulation {
 		Random rnd = new Random();
 		T[] ts = new T[length];
 		for (int i = 0; i < length; i++) {
-			ts[i] = T.values()[rnd.nextInt(8)];
+			ts[i] = T.get(rnd.nextInt(8));
+		}
+		return new Code(ts);
+	}
+
+	/**
+	 * Create and return a random code of specified length drawn from
+	 * 'random'.
+	 * 
+	 * @param length
+	 *            Length of the code
+	 * @param random
+	 *            Source of randomness
+	 * @return Random code
+	 */
+	public static Code createRandomCode(int length, SplittableRandom random) {
+		T[] ts = new T[length];
+		for (int i = 0; i < length; i++) {
+			ts[i] = T.get(random.nextInt(8));
 		}
 		return new Code(ts);
 	}
@@ -123,7 +303,7 @@ public class Simulation {
 	 * @return Calculated driving time
 	 */
 	private double calculateDrivingTime(Code guess) {
-		return (calculateDrivingDistance(this.lastButton, guess) / this.robotSpeed) * 1000;
+		return (this.routes.getDistance(this.lastButton, guess.getIndex()) / this.robotSpeed) * 1000;
 	}
 
 	/**
@@ -137,17 +317,9 @@ public class Simulation {
 	 * @return Calculated driving distance
 	 */
 	public static double calculateDrivingDistance(T lastButton, Code guess) {
-		double distance = 0;
-		if (lastButton != null) {
-			distance += lastButton.calculateDistance(guess.get(0));
-		} else { // I.e. The robot is in the middle of the field (start)
-			// Distance from the center to each button is 1084.4
-			distance += 1084.4;
-		}
-		for (int i = 0; i < guess.getLength() - 1; i++) {
-			distance += guess.get(i).calculateDistance(guess.get(i + 1));
-		}
-		return distance;
+		// The distance from the center to each button is 1084.4
+		return RouteTable.forLength(guess.getLength()).getDistance(lastButton,
+				guess.getIndex());
 	}
 
 }
\ No newline at end of file
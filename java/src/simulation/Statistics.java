@@ -3,11 +3,18 @@ package simulation;
 import java.util.HashMap;
 import java.util.Map;
 
+import strategy.search.Sampler;
+
 /**
  * Several statistics of a single simulation.
  */
 public class Statistics {
 
+	/** Rounds from this one on share their guess statistics */
+	public static final int MAX_ROUND = 16;
+	/** Confidence of the reported error bounds of sampled guesses */
+	public static final double CONFIDENCE = 0.95;
+
 	/** 
 	 * Save how many correct guesses have been achieved in each round. The key
 	 * is the respective round and the value is the number of successes in that
@@ -20,12 +27,38 @@ public class Statistics {
 	private double drivingTime;
 	/** Keep track of the current round. Reset after a correct guess */
 	private int roundCounter;
+	/** Latency of every guess */
+	private LatencyHistogram latency;
+	/** Latency of the guesses per round, the last one for all later rounds */
+	private LatencyHistogram[] roundLatency;
+	/** Feedback evaluations per round */
+	private long[] evaluations;
+	/** Scored guesses per round */
+	private long[] scoredGuesses;
+	/** Sum of the numbers of consistent codes per round */
+	private long[] candidates;
+	/** Number of guesses per round whose strategy counted consistent codes */
+	private long[] candidateSamples;
+	/** Number of guesses scored on a sample of the consistent codes */
+	private long sampledGuesses;
+	/** Sum and maximum of the error bounds of the sampled guesses */
+	private double errorBoundSum;
+	private double errorBoundMax;
 
 	public Statistics() {
 		this.roundCounter = 1;
 		this.thinkingTime = 0;
 		this.drivingTime = 0;
 		this.successesPerRound = new HashMap<Integer, Integer>();
+		this.latency = new LatencyHistogram();
+		this.roundLatency = new LatencyHistogram[MAX_ROUND + 1];
+		for (int i = 1; i <= MAX_ROUND; i++) {
+			this.roundLatency[i] = new LatencyHistogram();
+		}
+		this.evaluations = new long[MAX_ROUND + 1];
+		this.scoredGuesses = new long[MAX_ROUND + 1];
+		this.candidates = new long[MAX_ROUND + 1];
+		this.candidateSamples = new long[MAX_ROUND + 1];
 	}
 
 	/**
@@ -47,6 +80,41 @@ public class Statistics {
 		this.roundCounter = 1;
 	}
 
+	/**
+	 * Record a guess of the current round, i.e. call this after
+	 * {@link #count()} or {@link #reset()}.
+	 * 
+	 * @param latency
+	 *            Measured thinking time in milliseconds
+	 * @param evaluations
+	 *            Feedback evaluations of the strategy
+	 * @param scoredGuesses
+	 *            Guesses scored by the strategy
+	 * @param candidates
+	 *            Consistent codes after the answer or 0 if unknown
+	 * @param sampleSize
+	 *            Size of the sample of consistent codes the guesses were
+	 *            scored on or 0 if they were scored on all consistent codes
+	 */
+	public void recordGuess(double latency, long evaluations,
+			long scoredGuesses, long candidates, long sampleSize) {
+		int round = Math.min(this.roundCounter, MAX_ROUND);
+		this.latency.record(latency);
+		this.roundLatency[round].record(latency);
+		this.evaluations[round] += evaluations;
+		this.scoredGuesses[round] += scoredGuesses;
+		if (candidates > 0) {
+			this.candidates[round] += candidates;
+			this.candidateSamples[round]++;
+		}
+		if (sampleSize > 0) {
+			double bound = Sampler.errorBound((int) sampleSize, CONFIDENCE);
+			this.sampledGuesses++;
+			this.errorBoundSum += bound;
+			this.errorBoundMax = Math.max(this.errorBoundMax, bound);
+		}
+	}
+
 	/**
 	 * Increase the thinking time.
 	 * 
@@ -67,6 +135,34 @@ public class Statistics {
 		this.drivingTime += time;
 	}
 
+	/**
+	 * Add the successes and times of 'other' to this statistics.
+	 * 
+	 * @param other
+	 *            Statistics of another simulation
+	 */
+	public void merge(Statistics other) {
+		for (Map.Entry<Integer, Integer> e : other.successesPerRound.entrySet()) {
+			Integer old = this.successesPerRound.get(e.getKey());
+			if (old == null)
+				old = 0;
+			this.successesPerRound.put(e.getKey(), old + e.getValue());
+		}
+		this.thinkingTime += other.thinkingTime;
+		this.drivingTime += other.drivingTime;
+		this.latency.merge(other.latency);
+		for (int i = 1; i <= MAX_ROUND; i++) {
+			this.roundLatency[i].merge(other.roundLatency[i]);
+			this.evaluations[i] += other.evaluations[i];
+			this.scoredGuesses[i] += other.scoredGuesses[i];
+			this.candidates[i] += other.candidates[i];
+			this.candidateSamples[i] += other.candidateSamples[i];
+		}
+		this.sampledGuesses += other.sampledGuesses;
+		this.errorBoundSum += other.errorBoundSum;
+		this.errorBoundMax = Math.max(this.errorBoundMax, other.errorBoundMax);
+	}
+
 	public double getThinkingTime() {
 		return this.thinkingTime;
 	}
@@ -79,4 +175,96 @@ public class Statistics {
 		return this.successesPerRound;
 	}
 
+	/**
+	 * Return the latencies of all guesses.
+	 * 
+	 * @return Latency histogram
+	 */
+	public LatencyHistogram getLatency() {
+		return this.latency;
+	}
+
+	/**
+	 * Return the latencies of the guesses of a round.
+	 * 
+	 * @param round
+	 *            Round from 1 to MAX_ROUND, which includes all later rounds
+	 * @return Latency histogram
+	 */
+	public LatencyHistogram getLatency(int round) {
+		return this.roundLatency[round];
+	}
+
+	/**
+	 * Return the mean number of feedback evaluations per guess of a round.
+	 * 
+	 * @param round
+	 *            Round from 1 to MAX_ROUND
+	 * @return Mean evaluations
+	 */
+	public double getMeanEvaluations(int round) {
+		return mean(this.evaluations[round], this.roundLatency[round]
+				.getCount());
+	}
+
+	/**
+	 * Return the mean number of scored guesses per guess of a round.
+	 * 
+	 * @param round
+	 *            Round from 1 to MAX_ROUND
+	 * @return Mean scored guesses
+	 */
+	public double getMeanScoredGuesses(int round) {
+		return mean(this.scoredGuesses[round], this.roundLatency[round]
+				.getCount());
+	}
+
+	/**
+	 * Return the mean number of consistent codes in a round after the answer
+	 * of the previous round.
+	 * 
+	 * @param round
+	 *            Round from 1 to MAX_ROUND
+	 * @return Mean consistent codes or 0 if the strategy does not count them
+	 */
+	public double getMeanCandidates(int round) {
+		return mean(this.candidates[round], this.candidateSamples[round]);
+	}
+
+	/**
+	 * Return the number of guesses that were scored on a sample of the
+	 * consistent codes.
+	 * 
+	 * @return Number of sampled guesses
+	 */
+	public long getSampledGuesses() {
+		return this.sampledGuesses;
+	}
+
+	/**
+	 * Return the mean error bound of the relative part sizes of the sampled
+	 * guesses, see Sampler.errorBound. The bound holds with the probability
+	 * CONFIDENCE.
+	 * 
+	 * @return Mean error bound between 0 and 1 or 0 if nothing was sampled
+	 */
+	public double getMeanErrorBound() {
+		return this.sampledGuesses == 0 ? 0 : this.errorBoundSum
+				/ this.sampledGuesses;
+	}
+
+	/**
+	 * Return the largest error bound of the relative part sizes of the
+	 * sampled guesses.
+	 * 
+	 * @return Maximum error bound between 0 and 1
+	 */
+	public double getMaxErrorBound() {
+		return this.errorBoundMax;
+	}
+
+	private static double mean(long sum, long count) {
+		return count == 0 ? 0 : 1.0 * sum / count;
+	}
+
 }
\ No newline at end of file
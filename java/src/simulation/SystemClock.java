@@ -0,0 +1,19 @@
+package simulation;
+
+/**
+ * The system time in milliseconds. Guesses that take less than a millisecond
+ * mostly count as no time at all.
+ */
+public class SystemClock implements IClock {
+
+	@Override
+	public double currentTime() {
+		return System.currentTimeMillis();
+	}
+
+	@Override
+	public String toString() {
+		return "System";
+	}
+
+}
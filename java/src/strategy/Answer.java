@@ -1,21 +1,44 @@
 package strategy;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * A mastermind answer to an entered guess consisting of the number of correct
  * buttons on the correct positions and the number of correct buttons on the
  * wrong positions.
+ * 
+ * Answers are interned: there is exactly one instance per answer id, so
+ * answers can be compared with == and looked up by their id without
+ * allocating (see {@link #fromId(int)}).
  */
-public class Answer {
+public final class Answer {
+
+	/** Radix used to combine blacks and whites into an answer id */
+	private static final int ID_RADIX = 9;
+	/** Largest supported code length */
+	private static final int MAX_LENGTH = 8;
+	/** The instance of every answer id */
+	private static final Answer[] ANSWERS = new Answer[idCount(MAX_LENGTH)];
+	/** Result of createAllAnswers for every length */
+	private static final List<List<Answer>> ALL_ANSWERS = new ArrayList<List<Answer>>();
+
+	static {
+		for (int id = 0; id < ANSWERS.length; id++) {
+			ANSWERS[id] = new Answer(id / ID_RADIX, id % ID_RADIX);
+		}
+		for (int length = 0; length <= MAX_LENGTH; length++) {
+			ALL_ANSWERS.add(Collections.unmodifiableList(buildAllAnswers(length)));
+		}
+	}
 
 	/** Number of correct buttons on the correct positions */
 	public final int blacks;
 	/** Number of correct buttons on the wrong positions */
 	public final int whites;
 
-	public Answer(int blacks, int whites) {
+	private Answer(int blacks, int whites) {
 		this.blacks = blacks;
 		this.whites = whites;
 	}
@@ -29,26 +52,133 @@ public class Answer {
 		}
 		return result;
 	}
+
+	@Override
+	public int hashCode() {
+		return this.getId();
+	}
 	
+	/**
+	 * Return a small number that identifies this answer, independent of the
+	 * code length.
+	 * 
+	 * @return Answer id between 0 and idCount(length) - 1
+	 */
+	public int getId() {
+		return id(this.blacks, this.whites);
+	}
+
 	@Override
 	public String toString() {
 		return "b:" + this.blacks + " w:" + this.whites;
 	}
 
 	/**
-	 * Create all possible anwers for a specific length.
+	 * Return the id of the answer with the given blacks and whites.
+	 * 
+	 * @param blacks
+	 *            Number of correct buttons on the correct positions
+	 * @param whites
+	 *            Number of correct buttons on the wrong positions
+	 * @return Answer id
+	 */
+	public static int id(int blacks, int whites) {
+		return blacks * ID_RADIX + whites;
+	}
+
+	/**
+	 * Return the answer with the given id. Does not allocate.
+	 * 
+	 * @param id
+	 *            Answer id
+	 * @return Answer
+	 */
+	public static Answer fromId(int id) {
+		return ANSWERS[id];
+	}
+
+	/**
+	 * Return the answer with the given blacks and whites. Does not allocate.
+	 * 
+	 * @param blacks
+	 *            Number of correct buttons on the correct positions
+	 * @param whites
+	 *            Number of correct buttons on the wrong positions
+	 * @return Answer
+	 */
+	public static Answer valueOf(int blacks, int whites) {
+		return ANSWERS[id(blacks, whites)];
+	}
+
+	/**
+	 * Return the number of correct buttons on the correct positions of the
+	 * answer with the given id.
+	 * 
+	 * @param id
+	 *            Answer id
+	 * @return Blacks
+	 */
+	public static int blacks(int id) {
+		return id / ID_RADIX;
+	}
+
+	/**
+	 * Return the number of correct buttons on the wrong positions of the
+	 * answer with the given id.
+	 * 
+	 * @param id
+	 *            Answer id
+	 * @return Whites
+	 */
+	public static int whites(int id) {
+		return id % ID_RADIX;
+	}
+
+	/**
+	 * Return true if the answer with the given id means that a code of length
+	 * 'length' was found.
+	 * 
+	 * @param id
+	 *            Answer id
+	 * @param length
+	 *            Code length
+	 * @return True, if all buttons are correct
+	 */
+	public static boolean isSolved(int id, int length) {
+		return id == id(length, 0);
+	}
+
+	/**
+	 * Return the number of answer ids needed for a specific length, i.e. every
+	 * answer to a code of this length has an id below the returned value.
+	 * 
+	 * @param length
+	 *            Code length
+	 * @return Upper bound (exclusive) of the answer ids
+	 */
+	public static int idCount(int length) {
+		return length * ID_RADIX + 1;
+	}
+
+	/**
+	 * Return all possible anwers for a specific length. The list is shared
+	 * and cannot be modified.
 	 * 
 	 * @param length
 	 *            Code length
 	 * @return List of all possible answers
 	 */
 	public static List<Answer> createAllAnswers(int length) {
+		return ALL_ANSWERS.get(length);
+	}
+
+	private static List<Answer> buildAllAnswers(int length) {
 		List<Answer> result = new ArrayList<Answer>();
 		for (int blacks = 0; blacks < length; blacks++) {
 			for (int whites = 0; whites < length; whites++) {
 				int sum = whites + blacks;
 				if (sum <= length && !(blacks == length - 1 && whites == 1)) {
-					result.add(new Answer(blacks, whites));
+					result.add(valueOf(blacks, whites));
 				}
 			}
 		}
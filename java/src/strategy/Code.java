@@ -1,43 +1,48 @@
 package strategy;
 
-import java.util.LinkedList;
 import java.util.List;
 
 /**
  * A sequence of buttons representing a code in the mastermind game.
  * 
- * Used as a guess by a mastermind strategy.
+ * Used as a guess by a mastermind strategy. The buttons are stored packed
+ * into an int (see {@link PackedCode}).
  */
 public class Code {
 
-	private final T[] code;
+	/** Packed buttons, which is also the index of this code */
+	private final int code;
+	/** Number of buttons */
+	private final int length;
 
 	public Code(T... t) {
-		this.code = t.clone();
+		this(PackedCode.pack(t), t.length);
+	}
+
+	private Code(int code, int length) {
+		this.code = code;
+		this.length = length;
 	}
 
 	@Override
 	public boolean equals(Object other) {
 		if (other instanceof Code) {
 			Code that = (Code) other;
-			if (this.code.length != that.code.length) {
-				return false;
-			}
-			for (int i = 0; i < code.length; i++) {
-				if (this.code[i] != that.code[i]) {
-					return false;
-				}
-			}
-			return true;
+			return this.code == that.code && this.length == that.length;
 		}
 		return false;
 	}
 
+	@Override
+	public int hashCode() {
+		return this.code;
+	}
+
 	@Override
 	public String toString() {
 		String result = "";
-		for (T t : code) {
-			result += "T[" + t.i + "]";
+		for (int i = 0; i < this.length; i++) {
+			result += "T[" + PackedCode.get(this.code, i) + "]";
 		}
 		return result;
 	}
@@ -50,12 +55,7 @@ public class Code {
 	 * @return True, if t is an element
 	 */
 	public boolean contains(T t) {
-		for (T x : this.code) {
-			if (x == t) {
-				return true;
-			}
-		}
-		return false;
+		return (PackedCode.buttons(this.code, this.length) & (1 << t.i)) != 0;
 	}
 
 	/**
@@ -71,16 +71,20 @@ public class Code {
 	 * @return Answer
 	 */
 	public Answer compare(Code other) {
-		int blacks = 0;
-		int whites = 0;
-		for (int i = 0; i < this.code.length; i++) {
-			if (code[i] == other.code[i]) {
-				blacks++;
-			} else if (this.contains(other.code[i])) {
-				whites++;
-			}
-		}
-		return new Answer(blacks, whites);
+		return Answer.fromId(PackedCode.compare(this.code, other.code,
+				this.length));
+	}
+
+	/**
+	 * Compare this code with another code and return the id of the answer
+	 * without looking up the answer (see {@link Answer#getId()}).
+	 * 
+	 * @param other
+	 *            Code to be compared to
+	 * @return Answer id
+	 */
+	public int compareId(Code other) {
+		return PackedCode.compare(this.code, other.code, this.length);
 	}
 
 	/**
@@ -91,41 +95,54 @@ public class Code {
 	 * @return i-th button
 	 */
 	public T get(int i) {
-		return this.code[i];
+		return T.get(PackedCode.get(this.code, i));
 	}
-	
+
+	/**
+	 * Return the index of this code in the code space of its length.
+	 * 
+	 * The i-th button is the i-th base-8 digit of the index, so the index of
+	 * a code is also its position in the list returned by createAllCodes and
+	 * its packed form (see {@link PackedCode}).
+	 * 
+	 * @return Index of this code
+	 */
+	public int getIndex() {
+		return this.code;
+	}
+
 	/**
 	 * Return the number of buttons in this code.
 	 * 
 	 * @return Number of buttons
 	 */
 	public int getLength() {
-		return this.code.length;
+		return this.length;
 	}
 
 	/**
-	 * Create a set of all possible codes of a specific length consisting of the
-	 * buttons T[0],...,T[7].
+	 * Return a list of all possible codes of a specific length consisting of
+	 * the buttons T[0],...,T[7].
 	 * 
-	 * Assume that the parameter length is between 1-8. Use a linked list
-	 * because it is fast to remove an element and we don't need direct acces to
-	 * elements.
+	 * Assume that the parameter length is between 1-8. The i-th code of the
+	 * list has the index i. The list is the shared, unmodifiable code space of
+	 * the length (see {@link CodeSpace}), which creates the codes on demand.
 	 */
 	public static List<Code> createAllCodes(int length) {
-		final List<Code> result = new LinkedList<Code>();
-		_createAllCodes(result, length, new T[length]);
-		return result;
+		return CodeSpace.forLength(length);
 	}
 
-	private static void _createAllCodes(List<Code> codes, int length, T[] ts) {
-		if (length == 0) {
-			codes.add(new Code(ts));
-		} else {
-			for (T t : T.values()) {
-				ts[length-1] = t;
-				_createAllCodes(codes, length - 1, ts);
-			}
-		}
+	/**
+	 * Create the code of a specific length with the given index.
+	 * 
+	 * @param index
+	 *            Index of the code, see {@link #getIndex()}
+	 * @param length
+	 *            Code length
+	 * @return Code with the given index
+	 */
+	public static Code fromIndex(int index, int length) {
+		return new Code(index, length);
 	}
 
-}
\ No newline at end of file
+}
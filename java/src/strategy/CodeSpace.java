@@ -0,0 +1,188 @@
+package strategy;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * All codes of a specific length, addressed by their index (see
+ * {@link Code#getIndex()}).
+ *
+ * The space is an unmodifiable random access list whose i-th element is the
+ * code with the index i, so it can replace the list of Code.createAllCodes.
+ * The codes are created on demand: for lengths up to MAX_CACHED_LENGTH they
+ * are created once and shared by every user of the length, for longer codes
+ * every access creates a new code, so the space takes constant memory even
+ * for 8^8 codes. Code indices can be mapped without creating codes at all.
+ *
+ * The spaces are shared by all strategies and may be used by multiple
+ * threads.
+ */
+public final class CodeSpace extends AbstractList<Code> implements
+		RandomAccess {
+
+	/** Maximum code length for which the codes are kept */
+	public static final int MAX_CACHED_LENGTH = FeedbackMatrix.MAX_TABLE_LENGTH;
+	/** Maximum code length */
+	public static final int MAX_LENGTH = 8;
+	/** Already created spaces by code length */
+	private static final AtomicReferenceArray<CodeSpace> spaces = new AtomicReferenceArray<CodeSpace>(
+			MAX_LENGTH + 1);
+
+	private final int codeLength;
+	/** Number of codes */
+	private final int size;
+	/** Codes by index, created on first access, or null if not kept */
+	private final AtomicReferenceArray<Code> codes;
+
+	private CodeSpace(int codeLength) {
+		this.codeLength = codeLength;
+		this.size = 1 << (PackedCode.BITS * codeLength);
+		this.codes = codeLength <= MAX_CACHED_LENGTH ? new AtomicReferenceArray<Code>(
+				this.size) : null;
+	}
+
+	/**
+	 * Return the space of the codes of a specific length.
+	 *
+	 * @param length
+	 *            Code length between 0 and MAX_LENGTH
+	 * @return Code space
+	 */
+	public static CodeSpace forLength(int length) {
+		if (length < 0 || length > MAX_LENGTH) {
+			throw new IllegalArgumentException("Unsupported code length "
+					+ length);
+		}
+		CodeSpace space = spaces.get(length);
+		if (space == null) {
+			// Creating a space is cheap, so a lost race does not matter
+			spaces.compareAndSet(length, null, new CodeSpace(length));
+			space = spaces.get(length);
+		}
+		return space;
+	}
+
+	/**
+	 * Return the code with the index 'index'.
+	 *
+	 * @param index
+	 *            Code index
+	 * @return Code
+	 */
+	@Override
+	public Code get(int index) {
+		if (index < 0 || index >= this.size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ this.size);
+		}
+		if (this.codes == null) {
+			return Code.fromIndex(index, this.codeLength);
+		}
+		Code code = this.codes.get(index);
+		if (code == null) {
+			this.codes.compareAndSet(index, null,
+					Code.fromIndex(index, this.codeLength));
+			code = this.codes.get(index);
+		}
+		return code;
+	}
+
+	/**
+	 * Return the number of codes, i.e. 8^codeLength.
+	 *
+	 * @return Number of codes
+	 */
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		if (o instanceof Code && ((Code) o).getLength() == this.codeLength) {
+			return ((Code) o).getIndex();
+		}
+		return -1;
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		return this.indexOf(o);
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return this.indexOf(o) >= 0;
+	}
+
+	/**
+	 * Return a spliterator over the codes that splits by index ranges, so
+	 * that parallel streams of the space do not buffer any codes.
+	 */
+	@Override
+	public Spliterator<Code> spliterator() {
+		return new CodeSpliterator(0, this.size);
+	}
+
+	public int getCodeLength() {
+		return this.codeLength;
+	}
+
+	/**
+	 * Iterates the codes of an index range.
+	 */
+	private class CodeSpliterator implements Spliterator<Code> {
+
+		/** Next index */
+		private int from;
+		/** Index after the last code */
+		private final int to;
+
+		CodeSpliterator(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Code> action) {
+			if (this.from >= this.to) {
+				return false;
+			}
+			action.accept(get(this.from++));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super Code> action) {
+			for (; this.from < this.to; this.from++) {
+				action.accept(get(this.from));
+			}
+		}
+
+		@Override
+		public Spliterator<Code> trySplit() {
+			int middle = (this.from + this.to) >>> 1;
+			if (middle <= this.from) {
+				return null;
+			}
+			Spliterator<Code> prefix = new CodeSpliterator(this.from, middle);
+			this.from = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return this.to - this.from;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+		}
+
+	}
+
+}
@@ -0,0 +1,60 @@
+package strategy;
+
+/**
+ * Counters of the work that the strategies of the current thread performed.
+ *
+ * The counts are a deterministic measure of the work of a strategy which does
+ * not depend on the machine or its load. Work that a strategy delegates to
+ * other threads is counted on the thread that delegated it. Counting costs a
+ * thread local lookup per filter or search, not per code.
+ */
+public final class Counters {
+
+	/** Feedback evaluations, i.e. comparisons of a guess with a code */
+	public static final int EVALUATIONS = 0;
+	/** Guesses whose partition of the consistent codes was scored */
+	public static final int SCORED_GUESSES = 1;
+	/** Sum of the numbers of consistent codes after each filtering */
+	public static final int CANDIDATES = 2;
+	/**
+	 * Sum of the sizes of the samples of consistent codes that guesses were
+	 * scored on instead of all consistent codes
+	 */
+	public static final int SAMPLE_SIZE = 3;
+	/** Number of counters */
+	public static final int COUNT = 4;
+
+	private static final ThreadLocal<long[]> counts = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[COUNT];
+		}
+	};
+
+	private Counters() {
+	}
+
+	/**
+	 * Add 'n' to a counter of the current thread.
+	 *
+	 * @param counter
+	 *            Counter, e.g. {@link #EVALUATIONS}
+	 * @param n
+	 *            Amount
+	 */
+	public static void add(int counter, long n) {
+		counts.get()[counter] += n;
+	}
+
+	/**
+	 * Return the value of a counter of the current thread.
+	 *
+	 * @param counter
+	 *            Counter, e.g. {@link #EVALUATIONS}
+	 * @return Value
+	 */
+	public static long get(int counter) {
+		return counts.get()[counter];
+	}
+
+}
@@ -0,0 +1,181 @@
+package strategy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Table of the answer ids for every pair of codes of a specific length.
+ *
+ * Codes are addressed by their index (see {@link Code#getIndex()}) and the
+ * entry for (guess, secret) is the id of guess.compare(secret) (see
+ * {@link Answer#getId()}). Thus comparing two codes becomes a table lookup.
+ *
+ * The table is built once per code length and stored in a cache file which is
+ * memory-mapped, so that it is shared by every strategy and every process
+ * using the same length. The directory of the cache files can be set with the
+ * system property "mastermind.cache" and defaults to the temporary directory.
+ *
+ * For lengths whose table would not fit into a single mapping the answers are
+ * computed on demand instead.
+ */
+public final class FeedbackMatrix {
+
+	/** Maximum code length for which the table is precomputed */
+	public static final int MAX_TABLE_LENGTH = 5;
+	/** Identifies a cache file of this class */
+	private static final int MAGIC = 0x4d4d4642;
+	/** Size of the header of a cache file in bytes (magic and length) */
+	private static final int HEADER_SIZE = 8;
+	/** Already loaded matrices by code length */
+	private static final Map<Integer, FeedbackMatrix> matrices = new HashMap<Integer, FeedbackMatrix>();
+
+	/** Length of the codes */
+	private final int codeLength;
+	/** Number of codes of this length */
+	private final int size;
+	/** Answer ids of all (guess, secret) pairs or null if computed on demand */
+	private final ByteBuffer table;
+
+	private FeedbackMatrix(int codeLength, ByteBuffer table) {
+		this.codeLength = codeLength;
+		this.size = 1 << (PackedCode.BITS * codeLength);
+		this.table = table;
+	}
+
+	/**
+	 * Return the matrix for a specific code length. The matrix is loaded from
+	 * the cache file and the cache file is created first if it does not exist
+	 * yet.
+	 *
+	 * @param length
+	 *            Code length
+	 * @return Feedback matrix
+	 */
+	public static synchronized FeedbackMatrix forLength(int length) {
+		FeedbackMatrix matrix = matrices.get(length);
+		if (matrix == null) {
+			ByteBuffer table = null;
+			if (length <= MAX_TABLE_LENGTH) {
+				table = loadTable(length);
+			}
+			matrix = new FeedbackMatrix(length, table);
+			matrices.put(length, matrix);
+		}
+		return matrix;
+	}
+
+	/**
+	 * Return the id of the answer for 'guess' if 'secret' is the secret code.
+	 *
+	 * @param guess
+	 *            Index of the guess
+	 * @param secret
+	 *            Index of the secret code
+	 * @return Answer id
+	 */
+	public int get(int guess, int secret) {
+		if (this.table != null) {
+			return this.table.get(guess * this.size + secret);
+		}
+		return PackedCode.compare(guess, secret, this.codeLength);
+	}
+
+	public int getCodeLength() {
+		return this.codeLength;
+	}
+
+	/**
+	 * Return the number of codes, i.e. the number of rows and columns.
+	 *
+	 * @return Number of codes
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Map the cache file for 'length' and create it if necessary. If the file
+	 * cannot be used the table is built on the heap instead.
+	 */
+	private static ByteBuffer loadTable(int length) {
+		int size = 1 << (PackedCode.BITS * length);
+		long fileSize = HEADER_SIZE + (long) size * size;
+		File file = new File(System.getProperty("mastermind.cache",
+				System.getProperty("java.io.tmpdir")),
+				"mastermind-feedback-" + length + ".bin");
+		try {
+			if (!isValid(file, length, fileSize)) {
+				// Write to a temporary file first so that other processes
+				// never map a half written table
+				File tmp = File.createTempFile("mastermind-feedback-", ".tmp",
+						file.getAbsoluteFile().getParentFile());
+				writeTable(tmp, length, fileSize);
+				if (!tmp.renameTo(file) && !isValid(file, length, fileSize)) {
+					tmp.delete();
+					throw new IOException("Cannot create " + file);
+				}
+			}
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				MappedByteBuffer buffer = raf.getChannel().map(
+						MapMode.READ_ONLY, 0, fileSize);
+				buffer.position(HEADER_SIZE);
+				return buffer.slice();
+			} finally {
+				raf.close();
+			}
+		} catch (IOException e) {
+			ByteBuffer table = ByteBuffer.allocate(size * size);
+			fillTable(table, length);
+			return table;
+		}
+	}
+
+	private static boolean isValid(File file, int length, long fileSize)
+			throws IOException {
+		if (!file.isFile() || file.length() != fileSize) {
+			return false;
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			return raf.readInt() == MAGIC && raf.readInt() == length;
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static void writeTable(File file, int length, long fileSize)
+			throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0,
+					fileSize);
+			buffer.putInt(MAGIC);
+			buffer.putInt(length);
+			fillTable(buffer.slice(), length);
+			buffer.force();
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static void fillTable(ByteBuffer table, int length) {
+		int size = 1 << (PackedCode.BITS * length);
+		for (int guess = 0; guess < size; guess++) {
+			int buttons = PackedCode.buttons(guess, length);
+			for (int secret = 0; secret < size; secret++) {
+				table.put((byte) PackedCode.compare(guess, buttons, secret,
+						length));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,22 @@
+package strategy;
+
+/**
+ * A mastermind strategy that can return a guess early if its thinking time
+ * is used up. The guess is the best one the strategy found so far, and the
+ * same guess as {@link #guess(Answer)} if the deadline does not expire.
+ */
+public interface IAnytimeStrategy extends IMastermindStrategy {
+
+	/**
+	 * Return the next guess like {@link #guess(Answer)}, but stop searching
+	 * once 'deadline' expired.
+	 * 
+	 * @param answer
+	 *            Answer to the last guess
+	 * @param deadline
+	 *            End of the thinking time
+	 * @return Next guess
+	 */
+	Code guess(Answer answer, IDeadline deadline);
+
+}
@@ -0,0 +1,21 @@
+package strategy;
+
+import java.util.concurrent.Future;
+
+/**
+ * A mastermind strategy that thinks in the background, e.g. while the robot
+ * is driving, and hands out its guesses as futures.
+ */
+public interface IAsyncStrategy extends IMastermindStrategy {
+
+	/**
+	 * Return the next guess like {@link #guess(Answer)}. The future is
+	 * already done if the guess was computed ahead of time.
+	 * 
+	 * @param answer
+	 *            Answer to the last guess
+	 * @return Next guess
+	 */
+	Future<Code> guessAsync(Answer answer);
+
+}
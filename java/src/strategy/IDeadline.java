@@ -0,0 +1,18 @@
+package strategy;
+
+/**
+ * The end of the thinking time that a strategy may use for a guess.
+ */
+public interface IDeadline {
+
+	/**
+	 * Return true if the thinking time is used up. Called often, so it must
+	 * be cheap. Only called by the thread that computes the guess, also
+	 * during a parallel search, because clocks may measure the current
+	 * thread.
+	 * 
+	 * @return True, if the strategy should return its best guess so far
+	 */
+	boolean isExpired();
+
+}
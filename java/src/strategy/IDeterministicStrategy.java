@@ -0,0 +1,44 @@
+package strategy;
+
+/**
+ * A mastermind strategy whose guesses only depend on the position of the
+ * robot at the reset and the answers since the reset.
+ * 
+ * The state of such a strategy can be set explicitly, which allows to
+ * precompute, cache and replay its guesses.
+ */
+public interface IDeterministicStrategy extends IMastermindStrategy {
+
+	/**
+	 * Reset the state of the strategy as if the robot stood at 'lastButton'
+	 * and return the first guess.
+	 * 
+	 * @param lastButton
+	 *            Last pushed button or null if the robot is in the center
+	 * @return First guess
+	 */
+	Code reset(T lastButton);
+
+	/**
+	 * Copy the state of the current game from 'other', which must be an
+	 * instance of the same strategy with the same code length.
+	 * 
+	 * @param other
+	 *            Strategy to copy the state from
+	 */
+	void copyStateFrom(IDeterministicStrategy other);
+
+	/**
+	 * Bring the state up to date with 'answer' to the last guess as if
+	 * guess(answer) had returned 'guess', without computing the guess. Only
+	 * the consistent codes are filtered, so this is much cheaper than guess,
+	 * e.g. to catch up with guesses that were served from a cache.
+	 * 
+	 * @param answer
+	 *            Answer to the last guess
+	 * @param guess
+	 *            Guess the strategy returns for 'answer'
+	 */
+	void replay(Answer answer, Code guess);
+
+}
@@ -0,0 +1,20 @@
+package strategy;
+
+/**
+ * Creates instances of a mastermind strategy.
+ * 
+ * Strategies are stateful, so every thread that plays games needs its own
+ * instance.
+ */
+public interface IStrategyFactory {
+
+	/**
+	 * Create a new instance of the strategy.
+	 * 
+	 * @param codeLength
+	 *            Code length
+	 * @return New strategy
+	 */
+	IMastermindStrategy create(int codeLength);
+
+}
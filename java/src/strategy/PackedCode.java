@@ -0,0 +1,116 @@
+package strategy;
+
+/**
+ * Operations on codes packed into an int.
+ *
+ * The i-th button of a packed code is stored in the bits 3i to 3i+2, so a
+ * packed code is the same number as the index of the code (see
+ * {@link Code#getIndex()}). Comparing packed codes does not allocate and
+ * does not branch on the buttons.
+ */
+public final class PackedCode {
+
+	/** Number of bits per button */
+	public static final int BITS = 3;
+	/** Mask for a single button */
+	private static final int BUTTON_MASK = (1 << BITS) - 1;
+	/** Lowest bit of every button of a code of length 8 */
+	private static final int LOW_BITS = 011111111;
+
+	private PackedCode() {
+	}
+
+	/**
+	 * Pack the buttons into an int.
+	 *
+	 * @param ts
+	 *            Buttons
+	 * @return Packed code
+	 */
+	public static int pack(T... ts) {
+		int code = 0;
+		for (int i = ts.length - 1; i >= 0; i--) {
+			code = (code << BITS) | ts[i].i;
+		}
+		return code;
+	}
+
+	/**
+	 * Return the i-th button of a packed code.
+	 *
+	 * @param code
+	 *            Packed code
+	 * @param i
+	 *            Position
+	 * @return Number of the button
+	 */
+	public static int get(int code, int i) {
+		return (code >>> (BITS * i)) & BUTTON_MASK;
+	}
+
+	/**
+	 * Return the set of buttons of a packed code as a bit mask, i.e. bit t is
+	 * set if T[t] is in the code.
+	 *
+	 * @param code
+	 *            Packed code
+	 * @param length
+	 *            Code length
+	 * @return Bit mask of the buttons
+	 */
+	public static int buttons(int code, int length) {
+		int buttons = 0;
+		for (int i = 0; i < length; i++, code >>>= BITS) {
+			buttons |= 1 << (code & BUTTON_MASK);
+		}
+		return buttons;
+	}
+
+	/**
+	 * Compare a guess with a secret code and return the id of the answer (see
+	 * {@link Answer#getId()}). Same semantics as {@link Code#compare(Code)}.
+	 *
+	 * @param guess
+	 *            Packed guess
+	 * @param secret
+	 *            Packed secret code
+	 * @param length
+	 *            Code length
+	 * @return Answer id
+	 */
+	public static int compare(int guess, int secret, int length) {
+		return compare(guess, buttons(guess, length), secret, length);
+	}
+
+	/**
+	 * Same as {@link #compare(int, int, int)} but with the precomputed
+	 * buttons of the guess, which is faster if a guess is compared with many
+	 * codes.
+	 *
+	 * @param guess
+	 *            Packed guess
+	 * @param guessButtons
+	 *            Result of buttons(guess, length)
+	 * @param secret
+	 *            Packed secret code
+	 * @param length
+	 *            Code length
+	 * @return Answer id
+	 */
+	public static int compare(int guess, int guessButtons, int secret,
+			int length) {
+		// Lowest bit of a button is set where guess and secret differ
+		int diff = guess ^ secret;
+		diff = (diff | (diff >>> 1) | (diff >>> 2))
+				& (LOW_BITS >>> (BITS * (8 - length)));
+		int blacks = length - Integer.bitCount(diff);
+		// A button of the secret on a wrong position is white if the guess
+		// contains it anywhere
+		int whites = 0;
+		for (int i = 0; i < length; i++, secret >>>= BITS, diff >>>= BITS) {
+			whites += (guessButtons >>> (secret & BUTTON_MASK)) & diff & 1;
+		}
+		return Answer.id(blacks, whites);
+	}
+
+}
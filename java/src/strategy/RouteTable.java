@@ -0,0 +1,171 @@
+package strategy;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Precomputed driving distances for the codes of a specific length.
+ *
+ * The distances between the buttons are computed once. For every start
+ * position (the center or a button) the table holds the driving distance of
+ * every code and the codes sorted by that distance, so the shortest code of a
+ * set is the first code of the order that is in the set.
+ *
+ * The distances are summed hop by hop from the start, exactly like
+ * Simulation.calculateDrivingDistance did, so they are bit-identical and ties
+ * are broken the same way. For lengths above MAX_TABLE_LENGTH only the button
+ * distances are precomputed.
+ */
+public final class RouteTable {
+
+	/** Maximum code length for which the distances of all codes are stored */
+	public static final int MAX_TABLE_LENGTH = FeedbackMatrix.MAX_TABLE_LENGTH;
+	/** Distance from the center of the field to every button */
+	public static final double CENTER_DISTANCE = 1084.4;
+	/** Start index for the center of the field */
+	private static final int CENTER = 8;
+	/** Distances between the buttons, the last row is the center */
+	private static final double[][] DISTANCES = new double[CENTER + 1][CENTER];
+	/** Already created tables by code length */
+	private static final AtomicReferenceArray<RouteTable> tables = new AtomicReferenceArray<RouteTable>(
+			9);
+
+	static {
+		for (int from = 0; from < CENTER; from++) {
+			for (int to = 0; to < CENTER; to++) {
+				DISTANCES[from][to] = T.get(from).calculateDistance(T.get(to));
+			}
+		}
+		for (int to = 0; to < CENTER; to++) {
+			DISTANCES[CENTER][to] = CENTER_DISTANCE;
+		}
+	}
+
+	private final int codeLength;
+	/** Driving distance by start and code index or null */
+	private final double[][] distances;
+	/** Code indices by start in ascending order of distance or null */
+	private final int[][] orders;
+
+	private RouteTable(int codeLength) {
+		this.codeLength = codeLength;
+		if (codeLength <= MAX_TABLE_LENGTH) {
+			int size = 1 << (PackedCode.BITS * codeLength);
+			this.distances = new double[CENTER + 1][size];
+			this.orders = new int[CENTER + 1][];
+			for (int from = 0; from <= CENTER; from++) {
+				for (int code = 0; code < size; code++) {
+					this.distances[from][code] = this.computeDistance(from, code);
+				}
+				this.orders[from] = sortByDistance(this.distances[from]);
+			}
+		} else {
+			this.distances = null;
+			this.orders = null;
+		}
+	}
+
+	/**
+	 * Return the table for a specific code length.
+	 *
+	 * @param length
+	 *            Code length
+	 * @return Route table
+	 */
+	public static RouteTable forLength(int length) {
+		RouteTable table = tables.get(length);
+		if (table == null) {
+			synchronized (tables) {
+				table = tables.get(length);
+				if (table == null) {
+					table = new RouteTable(length);
+					tables.set(length, table);
+				}
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Return the distance between two buttons.
+	 *
+	 * @param from
+	 *            Start button or null for the center
+	 * @param to
+	 *            Destination button
+	 * @return Distance in mm
+	 */
+	public static double getDistance(T from, T to) {
+		return DISTANCES[from == null ? CENTER : from.i][to.i];
+	}
+
+	/**
+	 * Return the driving distance for entering a code.
+	 *
+	 * @param lastButton
+	 *            Last pushed button or null if the robot is in the center
+	 * @param code
+	 *            Code index
+	 * @return Distance in mm
+	 */
+	public double getDistance(T lastButton, int code) {
+		int from = lastButton == null ? CENTER : lastButton.i;
+		if (this.distances != null) {
+			return this.distances[from][code];
+		}
+		return this.computeDistance(from, code);
+	}
+
+	/**
+	 * Return all code indices in ascending order of their driving distance
+	 * from 'lastButton', codes with the same distance in ascending order. The
+	 * array must not be modified.
+	 *
+	 * @param lastButton
+	 *            Last pushed button or null if the robot is in the center
+	 * @return Code indices or null if the length has no table
+	 */
+	public int[] getOrder(T lastButton) {
+		if (this.orders == null) {
+			return null;
+		}
+		return this.orders[lastButton == null ? CENTER : lastButton.i];
+	}
+
+	public int getCodeLength() {
+		return this.codeLength;
+	}
+
+	private double computeDistance(int from, int code) {
+		double distance = DISTANCES[from][PackedCode.get(code, 0)];
+		for (int i = 0; i < this.codeLength - 1; i++) {
+			distance += DISTANCES[PackedCode.get(code, i)][PackedCode.get(
+					code, i + 1)];
+		}
+		return distance;
+	}
+
+	/**
+	 * Return the indices of 'distances' sorted by distance and index.
+	 */
+	private static int[] sortByDistance(final double[] distances) {
+		Integer[] boxed = new Integer[distances.length];
+		for (int i = 0; i < boxed.length; i++) {
+			boxed[i] = i;
+		}
+		// Stable, so equal distances stay in ascending order of the index
+		Arrays.sort(boxed, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(distances[a], distances[b]);
+			}
+		});
+		int[] order = new int[boxed.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = boxed[i];
+		}
+		return order;
+	}
+
+}
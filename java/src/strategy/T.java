@@ -16,6 +16,9 @@ public enum T {
 	T6(6, -982, -460),
 	T7(7, -982, 460);
 	
+	/** Cache of values() because values() copies the array on every call */
+	private static final T[] VALUES = values();
+	
 	public final int i;
 	public final int x;
 	public final int y;
@@ -36,5 +39,16 @@ public enum T {
 	public double calculateDistance(T t) {
 		return Math.sqrt(Math.pow(this.x - t.x, 2) + Math.pow(this.y - t.y, 2));
 	}
+	
+	/**
+	 * Return the button T[i].
+	 * 
+	 * @param i
+	 *            Number of the button
+	 * @return Button
+	 */
+	public static T get(int i) {
+		return VALUES[i];
+	}
 
 }
\ No newline at end of file
@@ -0,0 +1,198 @@
+package strategy.cache;
+
+import java.util.Arrays;
+
+import strategy.Answer;
+import strategy.Code;
+import strategy.IDeterministicStrategy;
+import strategy.IMastermindStrategy;
+import strategy.IStrategyFactory;
+import strategy.T;
+
+/**
+ * Wraps a deterministic strategy and memoises its guesses in a GuessCache
+ * that may be shared with other instances of the same strategy, e.g. of
+ * other threads.
+ * 
+ * The key of a guess encodes the last pushed button at the reset and the
+ * answers since the reset. If a guess is served from the cache the wrapped
+ * strategy is not asked and falls behind. It is brought up to date on the
+ * next miss by replaying the answers and the served guesses, which only
+ * filters its consistent codes (see IDeterministicStrategy.replay).
+ */
+public class CachingStrategy implements IDeterministicStrategy {
+
+	/** Bits of the key for the last pushed button at the reset */
+	private static final int ROOT_BITS = 4;
+	/** Bits of the key per answer */
+	private static final int ANSWER_BITS = 7;
+	/** Number of answers that fit into a key. Longer games are not cached */
+	private static final int MAX_KEY_DEPTH = (64 - ROOT_BITS) / ANSWER_BITS;
+
+	private final IDeterministicStrategy strategy;
+	private final GuessCache cache;
+	private final int codeLength;
+	/** Last pushed button at the reset */
+	private T rootButton;
+	/** Last pushed button */
+	private T lastButton;
+	/** Ids of the answers since the reset */
+	private int[] answers = new int[MAX_KEY_DEPTH];
+	/** Indices of the guesses since the reset, one more than answers */
+	private int[] guesses = new int[MAX_KEY_DEPTH + 1];
+	/** Number of answers since the reset */
+	private int depth;
+	/** Key of the current history */
+	private long key;
+	/** True, if the wrapped strategy has seen the whole history */
+	private boolean synced;
+
+	/**
+	 * Create a caching wrapper.
+	 * 
+	 * @param strategy
+	 *            Wrapped strategy
+	 * @param cache
+	 *            Cache of the guesses of this strategy and code length
+	 * @param codeLength
+	 *            Code length
+	 */
+	public CachingStrategy(IDeterministicStrategy strategy, GuessCache cache,
+			int codeLength) {
+		this.strategy = strategy;
+		this.cache = cache;
+		this.codeLength = codeLength;
+	}
+
+	/**
+	 * Return a factory of caching wrappers of the strategies of 'factory',
+	 * which must be deterministic, that all share 'cache'.
+	 * 
+	 * @param factory
+	 *            Creates instances of a deterministic strategy
+	 * @param cache
+	 *            Cache of the guesses of this strategy and code length
+	 * @return Factory of wrappers
+	 */
+	public static IStrategyFactory wrap(final IStrategyFactory factory,
+			final GuessCache cache) {
+		return new IStrategyFactory() {
+			@Override
+			public IMastermindStrategy create(int codeLength) {
+				IMastermindStrategy strategy = factory.create(codeLength);
+				if (!(strategy instanceof IDeterministicStrategy)) {
+					throw new IllegalArgumentException(strategy
+							+ " is not deterministic");
+				}
+				return new CachingStrategy((IDeterministicStrategy) strategy,
+						cache, codeLength);
+			}
+		};
+	}
+
+	@Override
+	public Code reset() {
+		return this.reset(this.lastButton);
+	}
+
+	@Override
+	public Code reset(T lastButton) {
+		this.rootButton = lastButton;
+		this.depth = 0;
+		this.key = lastButton == null ? 0 : lastButton.i + 1;
+		int guess = this.cache.get(this.key);
+		if (guess >= 0) {
+			this.synced = false;
+			return this.lastGuess(Code.fromIndex(guess, this.codeLength));
+		}
+		Code result = this.strategy.reset(lastButton);
+		this.synced = true;
+		this.cache.put(this.key, result.getIndex());
+		return this.lastGuess(result);
+	}
+
+	@Override
+	public Code guess(Answer answer) {
+		boolean cacheable = this.addAnswer(answer);
+		if (cacheable) {
+			int guess = this.cache.get(this.key);
+			if (guess >= 0) {
+				this.synced = false;
+				return this.lastGuess(Code.fromIndex(guess, this.codeLength));
+			}
+		}
+		if (!this.synced) {
+			// Catch up with the history before the current answer
+			this.strategy.reset(this.rootButton);
+			for (int i = 0; i < this.depth - 1; i++) {
+				this.strategy.replay(Answer.fromId(this.answers[i]),
+						Code.fromIndex(this.guesses[i + 1], this.codeLength));
+			}
+			this.synced = true;
+		}
+		Code result = this.strategy.guess(answer);
+		if (cacheable) {
+			this.cache.put(this.key, result.getIndex());
+		}
+		return this.lastGuess(result);
+	}
+
+	@Override
+	public void replay(Answer answer, Code guess) {
+		this.addAnswer(answer);
+		if (this.synced) {
+			this.strategy.replay(answer, guess);
+		}
+		this.lastGuess(guess);
+	}
+
+	@Override
+	public void copyStateFrom(IDeterministicStrategy other) {
+		CachingStrategy that = (CachingStrategy) other;
+		this.rootButton = that.rootButton;
+		this.lastButton = that.lastButton;
+		this.answers = that.answers.clone();
+		this.guesses = that.guesses.clone();
+		this.depth = that.depth;
+		this.key = that.key;
+		this.synced = that.synced;
+		if (this.synced) {
+			this.strategy.copyStateFrom(that.strategy);
+		}
+	}
+
+	public GuessCache getCache() {
+		return this.cache;
+	}
+
+	/**
+	 * Append 'answer' to the history and the key.
+	 * 
+	 * @return True, if the key still identifies the history
+	 */
+	private boolean addAnswer(Answer answer) {
+		if (this.depth == this.answers.length) {
+			this.answers = Arrays.copyOf(this.answers, this.depth * 2);
+			this.guesses = Arrays.copyOf(this.guesses, this.depth * 2 + 1);
+		}
+		this.answers[this.depth++] = answer.getId();
+		if (this.depth > MAX_KEY_DEPTH) {
+			return false;
+		}
+		this.key |= (long) (answer.getId() + 1) << (ROOT_BITS
+				+ ANSWER_BITS * (this.depth - 1));
+		return true;
+	}
+
+	private Code lastGuess(Code guess) {
+		this.guesses[this.depth] = guess.getIndex();
+		this.lastButton = guess.get(this.codeLength - 1);
+		return guess;
+	}
+
+	@Override
+	public String toString() {
+		return this.strategy.toString();
+	}
+
+}
@@ -0,0 +1,154 @@
+package strategy.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded map from game histories to guesses that may be shared by many
+ * threads.
+ * 
+ * Lookups do not lock. When the cache is full an insertion evicts an entry
+ * chosen by the CLOCK algorithm: The entries form a ring and a hand sweeps
+ * over it, skipping (and clearing the flag of) entries that were read since
+ * the last sweep and evicting the first entry that was not.
+ * 
+ * A cache must only be used for one strategy and one code length because the
+ * keys only encode the history.
+ */
+public class GuessCache {
+
+	/** Estimated memory usage of an entry in bytes */
+	public static final int BYTES_PER_ENTRY = 96;
+
+	private static class Entry {
+
+		final int guess;
+		/** Set by lookups, cleared by the clock hand */
+		volatile boolean referenced;
+
+		Entry(int guess) {
+			this.guess = guess;
+		}
+
+	}
+
+	private final ConcurrentHashMap<Long, Entry> map;
+	/** Keys of the entries in clock order */
+	private final long[] ring;
+	/** Number of used slots of the ring */
+	private int used;
+	/** Position of the clock hand */
+	private int hand;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Create a cache that uses about 'memoryBudget' bytes when full.
+	 * 
+	 * @param memoryBudget
+	 *            Memory budget in bytes
+	 */
+	public GuessCache(long memoryBudget) {
+		int capacity = (int) Math.min(Integer.MAX_VALUE - 8,
+				Math.max(1, memoryBudget / BYTES_PER_ENTRY));
+		this.map = new ConcurrentHashMap<Long, Entry>(Math.min(capacity, 1 << 16));
+		this.ring = new long[capacity];
+	}
+
+	/**
+	 * Return the guess for a history or -1 if it is not cached.
+	 * 
+	 * @param key
+	 *            Encoded history
+	 * @return Index of the guess or -1
+	 */
+	public int get(long key) {
+		Entry entry = this.map.get(key);
+		if (entry == null) {
+			this.misses.increment();
+			return -1;
+		}
+		if (!entry.referenced) {
+			entry.referenced = true;
+		}
+		this.hits.increment();
+		return entry.guess;
+	}
+
+	/**
+	 * Cache the guess for a history.
+	 * 
+	 * @param key
+	 *            Encoded history
+	 * @param guess
+	 *            Index of the guess
+	 */
+	public void put(long key, int guess) {
+		synchronized (this.ring) {
+			if (this.map.containsKey(key)) {
+				return;
+			}
+			if (this.used < this.ring.length) {
+				this.ring[this.used++] = key;
+			} else {
+				// Sweep until an entry that was not read since the last sweep
+				while (true) {
+					Entry entry = this.map.get(this.ring[this.hand]);
+					if (!entry.referenced) {
+						break;
+					}
+					entry.referenced = false;
+					this.hand = (this.hand + 1) % this.ring.length;
+				}
+				this.map.remove(this.ring[this.hand]);
+				this.evictions.increment();
+				this.ring[this.hand] = key;
+				this.hand = (this.hand + 1) % this.ring.length;
+			}
+			this.map.put(key, new Entry(guess));
+		}
+	}
+
+	/**
+	 * Return the maximum number of entries.
+	 * 
+	 * @return Capacity
+	 */
+	public int getCapacity() {
+		return this.ring.length;
+	}
+
+	/**
+	 * Return the number of cached entries.
+	 * 
+	 * @return Number of entries
+	 */
+	public int size() {
+		return this.map.size();
+	}
+
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	public long getEvictions() {
+		return this.evictions.sum();
+	}
+
+	@Override
+	public String toString() {
+		long hits = this.getHits();
+		long lookups = hits + this.getMisses();
+		return String.format("%d/%d entries, %d hits, %d misses (%.2f %%), "
+				+ "%d evictions", this.size(), this.getCapacity(), hits,
+				this.getMisses(), lookups == 0 ? 0.0 : 100.0 * hits / lookups,
+				this.getEvictions());
+	}
+
+}
@@ -0,0 +1,126 @@
+package strategy.engine;
+
+import java.util.Arrays;
+
+import strategy.Code;
+import strategy.T;
+import strategy.search.CandidateSet;
+
+/**
+ * The state of one game played with a strategy engine: the consistent codes,
+ * the guesses since the reset, the last guess and the last pushed button.
+ *
+ * A session is small, its size is dominated by the candidate set (one bit
+ * per code). It must not be used by multiple threads at the same time, but
+ * may move between threads between two calls of the engine.
+ */
+public final class GameSession {
+
+	/** Codes that are consistent with the answers since the reset */
+	private final CandidateSet consistentCodes;
+	/** Indices of the guesses since the reset */
+	private int[] history = new int[8];
+	/** Number of guesses since the reset */
+	private int historySize;
+	/** Last guess or null before the first reset */
+	private Code lastGuess;
+	/** Last pushed button or null if the robot is in the center */
+	private T lastButton;
+
+	/**
+	 * Create a session whose consistent codes are kept in 'consistentCodes'.
+	 *
+	 * @param consistentCodes
+	 *            Empty candidate set of the code length
+	 */
+	public GameSession(CandidateSet consistentCodes) {
+		this.consistentCodes = consistentCodes;
+	}
+
+	/**
+	 * Replace the state of this session with the state of 'other', which must
+	 * be a session of the same code length.
+	 *
+	 * @param other
+	 *            Session to copy
+	 */
+	public void copyFrom(GameSession other) {
+		this.consistentCodes.copyFrom(other.consistentCodes);
+		this.setHistory(other.history, other.historySize);
+		this.lastGuess = other.lastGuess;
+		this.lastButton = other.lastButton;
+	}
+
+	/**
+	 * Return the consistent codes, which the engine may modify.
+	 *
+	 * @return Consistent codes
+	 */
+	public CandidateSet getConsistentCodes() {
+		return this.consistentCodes;
+	}
+
+	/**
+	 * Return the indices of the guesses since the reset. Only the first
+	 * getHistorySize() elements are valid and the array must not be
+	 * modified.
+	 *
+	 * @return Guesses
+	 */
+	public int[] getHistory() {
+		return this.history;
+	}
+
+	public int getHistorySize() {
+		return this.historySize;
+	}
+
+	/**
+	 * Replace the guesses since the reset with the first 'count' elements of
+	 * 'history'.
+	 *
+	 * @param history
+	 *            Indices of the guesses
+	 * @param count
+	 *            Number of guesses
+	 */
+	public void setHistory(int[] history, int count) {
+		if (count > this.history.length) {
+			this.history = Arrays.copyOf(history, Math.max(count,
+					this.history.length * 2));
+		} else {
+			System.arraycopy(history, 0, this.history, 0, count);
+		}
+		this.historySize = count;
+	}
+
+	/**
+	 * Append a guess to the guesses since the reset.
+	 *
+	 * @param guess
+	 *            Index of the guess
+	 */
+	public void addGuess(int guess) {
+		if (this.historySize == this.history.length) {
+			this.history = Arrays.copyOf(this.history, this.historySize * 2);
+		}
+		this.history[this.historySize++] = guess;
+	}
+
+	public Code getLastGuess() {
+		return this.lastGuess;
+	}
+
+	public void setLastGuess(Code lastGuess) {
+		this.lastGuess = lastGuess;
+	}
+
+	public T getLastButton() {
+		return this.lastButton;
+	}
+
+	public void setLastButton(T lastButton) {
+		this.lastButton = lastButton;
+	}
+
+}
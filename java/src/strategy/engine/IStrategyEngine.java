@@ -0,0 +1,97 @@
+package strategy.engine;
+
+import strategy.Answer;
+import strategy.Code;
+import strategy.T;
+
+/**
+ * A mastermind strategy split into the shareable part, the engine, and the
+ * state of a game, the session.
+ *
+ * An engine holds the code space and the precomputed tables of its code
+ * length and is thread-safe, so one engine can serve any number of
+ * concurrent games. All state of a game is in its GameSession.
+ */
+public interface IStrategyEngine {
+
+	/**
+	 * Create a session for a new game. It must be reset before the first
+	 * guess.
+	 *
+	 * @return New session
+	 */
+	GameSession createSession();
+
+	/**
+	 * Reset the session as if the robot stood at 'lastButton' and return the
+	 * first guess.
+	 *
+	 * @param session
+	 *            Session of this engine
+	 * @param lastButton
+	 *            Last pushed button or null if the robot is in the center
+	 * @return First guess
+	 */
+	Code reset(GameSession session, T lastButton);
+
+	/**
+	 * Return the next guess of the session for the answer to its last guess.
+	 *
+	 * @param session
+	 *            Session of this engine
+	 * @param answer
+	 *            Answer to the last guess
+	 * @return Next guess
+	 * @throws IllegalArgumentException
+	 *             If no consistent code of the session gives the answer. The
+	 *             session is not changed
+	 */
+	Code guess(GameSession session, Answer answer);
+
+	/**
+	 * Bring the session up to date with 'answer' to its last guess as if
+	 * guess had returned 'guess', without computing the guess (see
+	 * IDeterministicStrategy.replay).
+	 *
+	 * @param session
+	 *            Session of this engine
+	 * @param answer
+	 *            Answer to the last guess
+	 * @param guess
+	 *            Guess the strategy returns for 'answer'
+	 */
+	void replay(GameSession session, Answer answer, Code guess);
+
+	/**
+	 * Return the next guesses of many sessions at once, as if guess was
+	 * called for every session. Sessions in the same state that get the same
+	 * answer get the same guess, so it is computed only once. Every session
+	 * may occur at most once.
+	 *
+	 * The sessions fail by group: if no consistent code gives the answer, the
+	 * guesses of the group are null and its sessions are not changed. If the
+	 * computation of a group throws, its guesses are null and its sessions
+	 * are not changed as well, the other groups are still computed and the
+	 * first exception is thrown at the end.
+	 *
+	 * @param sessions
+	 *            Sessions of this engine
+	 * @param answers
+	 *            Answer to the last guess of every session
+	 * @param guesses
+	 *            Receives the next guess of every session
+	 * @param count
+	 *            Number of sessions
+	 * @return Number of guesses that were computed
+	 */
+	int guess(GameSession[] sessions, Answer[] answers, Code[] guesses,
+			int count);
+
+	/**
+	 * Return the length of the codes of this engine.
+	 *
+	 * @return Code length
+	 */
+	int getCodeLength();
+
+}
@@ -0,0 +1,87 @@
+package strategy.engine;
+
+import strategy.Answer;
+import strategy.Code;
+import strategy.IDeterministicStrategy;
+import strategy.IMastermindStrategy;
+import strategy.IStrategyFactory;
+import strategy.T;
+
+/**
+ * Adapts a session of a strategy engine to the IMastermindStrategy
+ * interface, so that an engine can be used wherever strategy instances are
+ * expected, e.g. by the simulation.
+ */
+public class SessionStrategy implements IDeterministicStrategy {
+
+	private final IStrategyEngine engine;
+	private final GameSession session;
+
+	/**
+	 * Create a strategy that plays with a new session of 'engine'.
+	 *
+	 * @param engine
+	 *            Shared engine
+	 */
+	public SessionStrategy(IStrategyEngine engine) {
+		this.engine = engine;
+		this.session = engine.createSession();
+	}
+
+	/**
+	 * Return a factory of strategies that share 'engine' and have a session
+	 * each.
+	 *
+	 * @param engine
+	 *            Shared engine
+	 * @return Factory of strategies of the code length of the engine
+	 */
+	public static IStrategyFactory factory(final IStrategyEngine engine) {
+		return new IStrategyFactory() {
+			@Override
+			public IMastermindStrategy create(int codeLength) {
+				if (codeLength != engine.getCodeLength()) {
+					throw new IllegalArgumentException("Code length "
+							+ codeLength + " instead of "
+							+ engine.getCodeLength());
+				}
+				return new SessionStrategy(engine);
+			}
+		};
+	}
+
+	@Override
+	public Code reset() {
+		return this.engine.reset(this.session, this.session.getLastButton());
+	}
+
+	@Override
+	public Code reset(T lastButton) {
+		return this.engine.reset(this.session, lastButton);
+	}
+
+	@Override
+	public Code guess(Answer answer) {
+		return this.engine.guess(this.session, answer);
+	}
+
+	@Override
+	public void replay(Answer answer, Code guess) {
+		this.engine.replay(this.session, answer, guess);
+	}
+
+	@Override
+	public void copyStateFrom(IDeterministicStrategy other) {
+		this.session.copyFrom(((SessionStrategy) other).session);
+	}
+
+	public GameSession getSession() {
+		return this.session;
+	}
+
+	@Override
+	public String toString() {
+		return this.engine.toString();
+	}
+
+}
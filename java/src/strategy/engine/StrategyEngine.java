@@ -0,0 +1,242 @@
+package strategy.engine;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import strategy.Answer;
+import strategy.Code;
+import strategy.FeedbackMatrix;
+import strategy.IMastermindStrategy;
+import strategy.IStrategyFactory;
+import strategy.T;
+import strategy.implementations.BasicStrategy;
+import strategy.search.AnswerMasks;
+import strategy.search.CandidateSet;
+
+/**
+ * An engine for the strategies derived from BasicStrategy.
+ *
+ * The tables of a code length (feedback matrix, answer masks, route table,
+ * code space) are already shared by all strategies of the length. The engine
+ * keeps one instance of the strategy per thread as a worker for the scratch
+ * state of the search, e.g. the symmetry classes. For every call the worker
+ * loads the state of the session, computes the guess and stores the new
+ * state in the session. Loading and storing copies the candidate set, which
+ * is small compared to scoring the guesses, so the guesses are the same as
+ * those of the strategy.
+ *
+ * A batch of guesses is grouped by the state the guess depends on: the
+ * consistent codes before the answer, the last guess, the last button and
+ * the answer. The best guesses only depend on the consistent codes, not on
+ * the symmetry classes of the history, so sessions with different histories
+ * share a group, unless the strategy depends on the history (see
+ * BasicStrategy.dependsOnHistory).
+ */
+public class StrategyEngine implements IStrategyEngine {
+
+	private final IStrategyFactory factory;
+	private final int codeLength;
+	private final AnswerMasks masks;
+	/** Worker of every thread that used this engine */
+	private final ThreadLocal<BasicStrategy> workers = new ThreadLocal<BasicStrategy>() {
+		@Override
+		protected BasicStrategy initialValue() {
+			return create();
+		}
+	};
+
+	/**
+	 * Create an engine for the strategies of 'factory', which must be
+	 * subclasses of BasicStrategy that do not use a candidate store.
+	 *
+	 * @param factory
+	 *            Creates the strategy
+	 * @param codeLength
+	 *            Code length
+	 */
+	public StrategyEngine(IStrategyFactory factory, int codeLength) {
+		this.factory = factory;
+		this.codeLength = codeLength;
+		this.masks = AnswerMasks.forMatrix(FeedbackMatrix.forLength(codeLength));
+		BasicStrategy worker = this.workers.get();
+		if (worker.usesCandidateStore()) {
+			throw new IllegalArgumentException(worker
+					+ " uses a candidate store at length " + codeLength);
+		}
+	}
+
+	@Override
+	public GameSession createSession() {
+		return new GameSession(new CandidateSet(this.masks));
+	}
+
+	@Override
+	public Code reset(GameSession session, T lastButton) {
+		BasicStrategy worker = this.workers.get();
+		worker.loadState(session);
+		Code guess = worker.reset(lastButton);
+		worker.saveState(session);
+		return guess;
+	}
+
+	@Override
+	public Code guess(GameSession session, Answer answer) {
+		if (!isPossible(session, answer)) {
+			throw new IllegalArgumentException("Answer " + answer
+					+ " is not consistent with the previous answers");
+		}
+		BasicStrategy worker = this.workers.get();
+		worker.loadState(session);
+		Code guess = worker.guess(answer);
+		worker.saveState(session);
+		return guess;
+	}
+
+	@Override
+	public void replay(GameSession session, Answer answer, Code guess) {
+		// Only the session changes, the worker is not needed
+		int lastGuess = session.getLastGuess().getIndex();
+		session.getConsistentCodes().retain(lastGuess, answer.getId());
+		session.addGuess(lastGuess);
+		session.setLastGuess(guess);
+		session.setLastButton(guess.get(this.codeLength - 1));
+	}
+
+	@Override
+	public int guess(GameSession[] sessions, Answer[] answers, Code[] guesses,
+			int count) {
+		BasicStrategy worker = this.workers.get();
+		boolean history = worker.dependsOnHistory();
+		// First session of every group by the key of its state or -1 if the
+		// answer of the group is not possible
+		Map<Key, Integer> groups = new HashMap<Key, Integer>();
+		int[] leaders = new int[count];
+		int computed = 0;
+		for (int i = 0; i < count; i++) {
+			Key key = new Key(sessions[i], answers[i], history);
+			Integer leader = groups.get(key);
+			if (leader == null) {
+				leader = isPossible(sessions[i], answers[i]) ? i : -1;
+				groups.put(key, leader);
+			}
+			leaders[i] = leader;
+		}
+		// The keys hash the sessions, so the groups must be complete before
+		// any session changes. A leader comes before the rest of its group.
+		// A session is only changed once the guess of its group is known
+		RuntimeException failure = null;
+		for (int i = 0; i < count; i++) {
+			GameSession session = sessions[i];
+			int leader = leaders[i];
+			if (leader == i) {
+				worker.loadState(session);
+				try {
+					guesses[i] = worker.guess(answers[i]);
+				} catch (RuntimeException e) {
+					guesses[i] = null;
+					if (failure == null) {
+						failure = e;
+					}
+					continue;
+				}
+				worker.saveState(session);
+				computed++;
+			} else if (leader < 0 || guesses[leader] == null) {
+				// The answer is not possible or the guess of the group failed
+				guesses[i] = null;
+			} else {
+				GameSession first = sessions[leader];
+				session.addGuess(session.getLastGuess().getIndex());
+				session.getConsistentCodes().copyFrom(
+						first.getConsistentCodes());
+				session.setLastGuess(first.getLastGuess());
+				session.setLastButton(first.getLastButton());
+				guesses[i] = guesses[leader];
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		return computed;
+	}
+
+	/**
+	 * Return true if a consistent code of the session gives 'answer' to its
+	 * last guess.
+	 */
+	private static boolean isPossible(GameSession session, Answer answer) {
+		return session.getConsistentCodes().intersects(
+				session.getLastGuess().getIndex(), answer.getId());
+	}
+
+	@Override
+	public int getCodeLength() {
+		return this.codeLength;
+	}
+
+	/**
+	 * The state of a session that its next guess depends on. Only valid while
+	 * the session does not change.
+	 */
+	private static final class Key {
+
+		private final GameSession session;
+		private final int answer;
+		private final boolean history;
+		private final int hash;
+
+		Key(GameSession session, Answer answer, boolean history) {
+			this.session = session;
+			this.answer = answer.getId();
+			this.history = history;
+			int hash = session.getConsistentCodes().hashCode();
+			hash = 31 * hash + session.getLastGuess().getIndex();
+			hash = 31 * hash + this.answer;
+			this.hash = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			GameSession a = this.session;
+			GameSession b = ((Key) other).session;
+			if (this.answer != ((Key) other).answer
+					|| !a.getLastGuess().equals(b.getLastGuess())
+					|| a.getLastButton() != b.getLastButton()
+					|| !a.getConsistentCodes().equals(b.getConsistentCodes())) {
+				return false;
+			}
+			if (this.history) {
+				return a.getHistorySize() == b.getHistorySize()
+						&& Arrays.equals(Arrays.copyOf(a.getHistory(),
+								a.getHistorySize()), Arrays.copyOf(
+								b.getHistory(), b.getHistorySize()));
+			}
+			return true;
+		}
+
+	}
+
+	private BasicStrategy create() {
+		IMastermindStrategy strategy = this.factory.create(this.codeLength);
+		if (!(strategy instanceof BasicStrategy)) {
+			throw new IllegalArgumentException(strategy
+					+ " is not a BasicStrategy");
+		}
+		return (BasicStrategy) strategy;
+	}
+
+	@Override
+	public String toString() {
+		return this.workers.get().toString();
+	}
+
+}
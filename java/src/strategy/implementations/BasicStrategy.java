@@ -1,38 +1,188 @@
 package strategy.implementations;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
-import simulation.Simulation;
 import strategy.Answer;
 import strategy.Code;
+import strategy.CodeSpace;
+import strategy.IAnytimeStrategy;
+import strategy.IDeadline;
+import strategy.Counters;
+import strategy.FeedbackMatrix;
+import strategy.IDeterministicStrategy;
 import strategy.IMastermindStrategy;
+import strategy.IStrategyFactory;
+import strategy.RouteTable;
 import strategy.T;
+import strategy.engine.GameSession;
+import strategy.search.AnswerMasks;
+import strategy.search.BestGuesses;
+import strategy.search.CandidateSet;
+import strategy.search.GuessSearch;
+import strategy.search.IGuessScorer;
+import strategy.search.IncrementalPartitions;
+import strategy.search.MappedCandidateStore;
+import strategy.search.Sampler;
+import strategy.search.SymmetryReducer;
 
 /**
  * This abstract class provides methods and fields that are needed for almost
  * every good mastermind strategy and thus decreases code duplication.
  */
-public abstract class BasicStrategy implements IMastermindStrategy {
+public abstract class BasicStrategy implements IDeterministicStrategy,
+		IAnytimeStrategy {
 
 	/** Length of the secret sequence */
 	protected final int CODE_LENGTH;
-	/** Cache of all possible codes to prevent unnecessary function calls */
+	/** Answer ids of all pairs of codes, addressed by code index */
+	protected final FeedbackMatrix feedback;
+	/**
+	 * All possible codes, created on demand (see CodeSpace). The i-th code has
+	 * the index i
+	 */
 	protected final List<Code> allCodes;
 	/** Cache of all possible answers to prevent unnecessary function calls */
 	protected final List<Answer> allAnswers;
+	/** Driving distances of all codes */
+	protected final RouteTable routes;
+	/** Search for the best guesses scored by the answers in allAnswers */
+	protected final GuessSearch search;
+	/** Classes of equivalent guesses for the current game */
+	protected final SymmetryReducer symmetry;
 	/** Set of the remaining consistent codes */
-	protected List<Code> consistentCodes;
+	protected final CandidateSet consistentCodes;
+	/**
+	 * Remaining consistent codes off the heap instead of consistentCodes or
+	 * null, see useCandidateStore
+	 */
+	protected MappedCandidateStore candidateStore;
 	/** Last tried guess */
 	protected Code lastGuess;
 	/** Last pushed button. Needed to determine the next shortest route */
 	protected T lastButton;
+	/** Indices of the guesses since the reset */
+	private int[] history;
+	/** Number of guesses since the reset */
+	private int historySize;
+	/** Result of getBestGuesses, reused so that guessing does not allocate */
+	private final CandidateSet bestGuesses;
+	/** Result of getConsistentCodes for sets, reused */
+	private final CandidateSet consistentBestGuesses;
+	/** Marks representatives during a method call, all false in between */
+	private final boolean[] isBest;
+	/** End of the thinking time of the current guess or null */
+	private IDeadline deadline;
+	/** Representatives in the order they are scored before a deadline */
+	private int[] promising;
+	/** Samples the codes and guesses that are scored or null */
+	private Sampler sampler;
+	/** Partitions of the consistent codes by every guess or null */
+	private final IncrementalPartitions partitions;
+	/** Buffer of getShortestCode for stores, created on first use */
+	private int[] shortestChunk;
 	
 	public BasicStrategy(int codeLength) {
 		this.CODE_LENGTH = codeLength;
-		this.allCodes = Code.createAllCodes(this.CODE_LENGTH);
-		this.consistentCodes = new ArrayList<Code>();
+		this.feedback = FeedbackMatrix.forLength(this.CODE_LENGTH);
+		this.allCodes = CodeSpace.forLength(this.CODE_LENGTH);
+		this.routes = RouteTable.forLength(this.CODE_LENGTH);
+		this.consistentCodes = new CandidateSet(
+				AnswerMasks.forMatrix(this.feedback));
 		this.allAnswers = Answer.createAllAnswers(this.CODE_LENGTH);
+		this.search = new GuessSearch(this.feedback, this.allAnswers);
+		this.symmetry = new SymmetryReducer(this.CODE_LENGTH);
+		this.history = new int[8];
+		this.bestGuesses = new CandidateSet(
+				AnswerMasks.forMatrix(this.feedback));
+		this.consistentBestGuesses = new CandidateSet(
+				AnswerMasks.forMatrix(this.feedback));
+		this.isBest = new boolean[this.allCodes.size()];
+		this.partitions = this.CODE_LENGTH <= FeedbackMatrix.MAX_TABLE_LENGTH ? new IncrementalPartitions(
+				AnswerMasks.forMatrix(this.feedback)) : null;
+	}
+
+	/**
+	 * Enable or disable the parallel search for the best guesses. The chosen
+	 * guesses are the same in both modes.
+	 * 
+	 * @param parallel
+	 *            True, if the search should use all cores
+	 */
+	public void setParallel(boolean parallel) {
+		this.search.setPool(parallel ? ForkJoinPool.commonPool() : null);
+	}
+
+	/**
+	 * Keep the consistent codes in candidateStore instead of consistentCodes
+	 * if the codes are longer than CodeSpace.MAX_CACHED_LENGTH. Then the heap
+	 * usage of the consistent codes does not depend on the code length, but
+	 * they cannot be scored by getBestGuesses. For strategies that only filter
+	 * the consistent codes, which must use the candidateStore overloads if it
+	 * is not null.
+	 */
+	protected void useCandidateStore() {
+		if (this.CODE_LENGTH > CodeSpace.MAX_CACHED_LENGTH) {
+			this.candidateStore = new MappedCandidateStore(this.feedback);
+		}
+	}
+
+	/**
+	 * Return true if the consistent codes are kept in the candidate store,
+	 * which sessions of a StrategyEngine do not support.
+	 * 
+	 * @return True, if the strategy uses a candidate store
+	 */
+	public boolean usesCandidateStore() {
+		return this.candidateStore != null;
+	}
+
+	/**
+	 * Score the guesses approximately on a random sample of the consistent
+	 * codes and only score a random sample of the guesses. The samples are
+	 * seeded from the game history, so the strategy stays deterministic.
+	 * 
+	 * @param codeSample
+	 *            Maximum number of consistent codes a guess is scored on or 0
+	 *            to disable sampling
+	 * @param guessSample
+	 *            Maximum number of scored guesses or 0 for all
+	 * @param seed
+	 *            Seed of the samples
+	 */
+	public void setSampling(int codeSample, int guessSample, long seed) {
+		this.sampler = codeSample <= 0 ? null : new Sampler(
+				AnswerMasks.forMatrix(this.feedback), codeSample, guessSample,
+				seed);
+	}
+
+	/**
+	 * Return a factory that enables sampling (see setSampling) on the
+	 * strategies of 'factory', which must be subclasses of BasicStrategy.
+	 * 
+	 * @param factory
+	 *            Creates the strategies
+	 * @param codeSample
+	 *            Maximum number of consistent codes a guess is scored on
+	 * @param guessSample
+	 *            Maximum number of scored guesses
+	 * @param seed
+	 *            Seed of the samples
+	 * @return Factory of sampling strategies
+	 */
+	public static IStrategyFactory withSampling(final IStrategyFactory factory,
+			final int codeSample, final int guessSample, final long seed) {
+		return new IStrategyFactory() {
+			@Override
+			public IMastermindStrategy create(int codeLength) {
+				BasicStrategy strategy = (BasicStrategy) factory
+						.create(codeLength);
+				strategy.setSampling(codeSample, guessSample, seed);
+				return strategy;
+			}
+		};
 	}
 
 	/**
@@ -44,19 +194,36 @@ public abstract class BasicStrategy implements IMastermindStrategy {
 	 * order to minimize the travel distance for the robot.
 	 */
 	public Code reset() {
-		// Refill consistent codes
-		this.consistentCodes.clear();
-		this.consistentCodes.addAll(this.allCodes);
+		this.refillConsistentCodes();
 		// Try a code with minimal travel distance
-		if (lastButton != null) {
+		if (this.candidateStore != null) {
+			this.lastGuess = lastButton != null ? this
+					.getShortestCode(this.candidateStore) : this.allCodes
+					.get(this.candidateStore.first());
+		} else if (lastButton != null) {
 			this.lastGuess = this.getShortestCode(this.consistentCodes);
 		} else {
-			this.lastGuess = consistentCodes.get(0);
+			this.lastGuess = this.allCodes.get(this.consistentCodes.first());
 		}
 		this.lastButton = this.lastGuess.get(this.CODE_LENGTH - 1);
 		return this.lastGuess;
 	}
 
+	/**
+	 * Return the next guess, but only score guesses until 'deadline' expires.
+	 * The guesses are scored in a promising order: guesses that are
+	 * consistent codes first, then the others, both by their travel distance.
+	 */
+	@Override
+	public Code guess(Answer answer, IDeadline deadline) {
+		this.deadline = deadline;
+		try {
+			return this.guess(answer);
+		} finally {
+			this.deadline = null;
+		}
+	}
+
 	/**
 	 * Filter consistent codes from 'codes'. 'codes' is not changed during this
 	 * method call.
@@ -75,14 +242,256 @@ public abstract class BasicStrategy implements IMastermindStrategy {
 	protected List<Code> getConsistentCodes(List<Code> codes,
 			Code lastGuess, Answer answer) {
 		List<Code> result = new ArrayList<Code>();
+		int guess = lastGuess.getIndex();
+		int answerId = answer.getId();
+		Counters.add(Counters.EVALUATIONS, codes.size());
 		for (Code code : codes) {
-			if (lastGuess.compare(code).equals(answer)) {
+			if (this.feedback.get(guess, code.getIndex()) == answerId) {
 				result.add(code);
 			}
 		}
 		return result;
 	}
 
+	/**
+	 * Return the codes of 'codes' that are consistent with the last answer.
+	 * 'codes' is not changed and must not be the result of a previous call.
+	 * The returned set is reused by the next call.
+	 * 
+	 * @param codes
+	 *            Set of codes where consistent codes are filtered
+	 * @param lastGuess
+	 *            Last tried guess
+	 * @param answer
+	 *            Answer by the game for the last tried guess
+	 * @return Consistent codes of 'codes'
+	 */
+	protected CandidateSet getConsistentCodes(CandidateSet codes,
+			Code lastGuess, Answer answer) {
+		this.consistentBestGuesses.copyFrom(codes);
+		this.consistentBestGuesses.retain(lastGuess.getIndex(), answer.getId());
+		return this.consistentBestGuesses;
+	}
+
+
+	/**
+	 * Reset the state of the strategy as if the robot stood at 'lastButton'
+	 * and return a good first guess.
+	 */
+	@Override
+	public Code reset(T lastButton) {
+		this.lastButton = lastButton;
+		return this.reset();
+	}
+
+	/**
+	 * Filter the consistent codes by 'answer' without scoring and take
+	 * 'guess' as the last guess. Subclasses with additional state that
+	 * survives a guess need to update it as well.
+	 */
+	@Override
+	public void replay(Answer answer, Code guess) {
+		if (this.candidateStore != null) {
+			this.candidateStore.retain(this.lastGuess.getIndex(),
+					answer.getId());
+		} else {
+			this.consistentCodes.retain(this.lastGuess.getIndex(),
+					answer.getId());
+			this.addHistory(this.lastGuess.getIndex());
+		}
+		this.lastGuess = guess;
+		this.lastButton = guess.get(this.CODE_LENGTH - 1);
+	}
+
+	/**
+	 * Copy the consistent codes, the last guess and the last button from
+	 * 'other'. Subclasses with additional state need to copy it as well.
+	 */
+	@Override
+	public void copyStateFrom(IDeterministicStrategy other) {
+		BasicStrategy that = (BasicStrategy) other;
+		if (this.candidateStore != null) {
+			this.candidateStore.copyFrom(that.candidateStore);
+		} else {
+			this.consistentCodes.copyFrom(that.consistentCodes);
+		}
+		this.lastGuess = that.lastGuess;
+		this.lastButton = that.lastButton;
+		this.history = that.history.clone();
+		this.historySize = that.historySize;
+	}
+
+	/**
+	 * Set the state of the current game to the state of 'session' (see
+	 * StrategyEngine). Not supported if the strategy uses a candidate store.
+	 * 
+	 * @param session
+	 *            Session of the same code length
+	 */
+	public void loadState(GameSession session) {
+		if (this.candidateStore != null) {
+			throw new UnsupportedOperationException(
+					"Sessions do not support candidate stores");
+		}
+		this.consistentCodes.copyFrom(session.getConsistentCodes());
+		this.lastGuess = session.getLastGuess();
+		this.lastButton = session.getLastButton();
+		if (session.getHistorySize() > this.history.length) {
+			this.history = new int[session.getHistory().length];
+		}
+		System.arraycopy(session.getHistory(), 0, this.history, 0,
+				session.getHistorySize());
+		this.historySize = session.getHistorySize();
+	}
+
+	/**
+	 * Return true if the guesses depend on the order of the guesses since the
+	 * reset and not only on the consistent codes, the last guess and the last
+	 * button, e.g. because the samples are seeded from the history.
+	 * 
+	 * @return True, if the history matters
+	 */
+	public boolean dependsOnHistory() {
+		return this.sampler != null;
+	}
+
+	/**
+	 * Store the state of the current game in 'session', see loadState.
+	 * 
+	 * @param session
+	 *            Session of the same code length
+	 */
+	public void saveState(GameSession session) {
+		if (this.candidateStore != null) {
+			throw new UnsupportedOperationException(
+					"Sessions do not support candidate stores");
+		}
+		session.getConsistentCodes().copyFrom(this.consistentCodes);
+		session.setLastGuess(this.lastGuess);
+		session.setLastButton(this.lastButton);
+		session.setHistory(this.history, this.historySize);
+	}
+
+	/**
+	 * Refill the consistent codes with all codes and forget the guesses of
+	 * the last game.
+	 */
+	protected void refillConsistentCodes() {
+		if (this.candidateStore != null) {
+			this.candidateStore.reset();
+		} else {
+			this.consistentCodes.reset();
+		}
+		this.historySize = 0;
+	}
+
+	/**
+	 * Score every code as a guess and return the codes with the best score in
+	 * ascending order. If no score is greater than 'threshold' return the
+	 * first consistent code instead.
+	 * 
+	 * Only one representative of every class of equivalent guesses is scored
+	 * (see SymmetryReducer) and the best classes are expanded afterwards. If
+	 * the guess has a deadline only the classes scored until then count. With
+	 * sampling only a sample of the classes is scored on a sample of the
+	 * consistent codes. Without both the partitions are maintained
+	 * incrementally (see IncrementalPartitions) when that is cheaper.
+	 * 
+	 * @param scorer
+	 *            Score of a guess, the higher the better
+	 * @param threshold
+	 *            Scores must be greater than this value to count
+	 * @return Set of the best guesses, which is reused by the next call
+	 */
+	protected CandidateSet getBestGuesses(IGuessScorer scorer, double threshold) {
+		this.symmetry.setHistory(this.history, this.historySize);
+		int[] candidates;
+		int count;
+		if (this.deadline == null) {
+			candidates = this.symmetry.getRepresentatives();
+			count = this.symmetry.getRepresentativeCount();
+		} else {
+			// Creates the array on the first call
+			count = this.orderRepresentatives();
+			candidates = this.promising;
+		}
+		CandidateSet codes = this.consistentCodes;
+		if (this.sampler != null) {
+			this.sampler.seed(this.history, this.historySize);
+			candidates = this.sampler.sampleGuesses(candidates, count);
+			count = this.sampler.getGuessCount(count);
+			codes = this.sampler.sampleCodes(codes);
+			if (codes != this.consistentCodes) {
+				Counters.add(Counters.SAMPLE_SIZE, codes.size());
+			}
+		}
+		// Keep the partitions of all guesses up to date if that costs less
+		// than partitioning the consistent codes for every candidate. Not
+		// with a deadline because the update cannot be interrupted
+		IncrementalPartitions partitions = null;
+		if (this.partitions != null && codes == this.consistentCodes
+				&& this.deadline == null
+				&& this.partitions.getUpdateCost(codes) <= (long) count
+						* codes.size()) {
+			this.partitions.update(codes);
+			partitions = this.partitions;
+		}
+		BestGuesses best = this.search.search(scorer, threshold, candidates,
+				count, codes, partitions, this.deadline);
+		CandidateSet bestGuesses = this.bestGuesses;
+		bestGuesses.clear();
+		if (best.size() > 0) {
+			for (int i = 0; i < best.size(); i++) {
+				this.isBest[best.get(i)] = true;
+			}
+			for (int code = 0; code < this.allCodes.size(); code++) {
+				if (this.isBest[this.symmetry.getCanonical(code)]) {
+					bestGuesses.add(code);
+				}
+			}
+			for (int i = 0; i < best.size(); i++) {
+				this.isBest[best.get(i)] = false;
+			}
+		} else {
+			bestGuesses.add(this.consistentCodes.first());
+		}
+		return bestGuesses;
+	}
+
+	/**
+	 * Put the representatives into 'promising': classes containing consistent
+	 * codes first, then the others, both ordered by the shortest travel
+	 * distance of any of their codes. Consistency does not depend on the
+	 * member of a class, so no class is in both groups.
+	 * 
+	 * @return Number of representatives
+	 */
+	private int orderRepresentatives() {
+		if (this.promising == null) {
+			this.promising = new int[this.allCodes.size()];
+		}
+		int[] order = this.routes.getOrder(this.lastButton);
+		int count = 0;
+		for (int pass = 0; pass < 2; pass++) {
+			boolean consistent = pass == 0;
+			for (int i = 0; i < this.allCodes.size(); i++) {
+				int code = order != null ? order[i] : i;
+				if (this.consistentCodes.contains(code) != consistent) {
+					continue;
+				}
+				int representative = this.symmetry.getCanonical(code);
+				if (!this.isBest[representative]) {
+					this.isBest[representative] = true;
+					this.promising[count++] = representative;
+				}
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			this.isBest[this.promising[i]] = false;
+		}
+		return count;
+	}
+
 	/**
 	 * Remove inconsistent codes from 'codes'. 'codes' is mutated.
 	 * 
@@ -91,23 +500,50 @@ public abstract class BasicStrategy implements IMastermindStrategy {
 	 * 'lastGuess' and the secret code given by the game.
 	 * 
 	 * @param codes
-	 *            List of codes where inconsistent codes are removed from
+	 *            Set of codes where inconsistent codes are removed from
 	 * @param lastGuess
 	 *            Last tried guess
 	 * @param answer
 	 *            Answer by the game for the last tried guess
 	 */
-	protected void removeInconsistentCodes(List<Code> codes, Code lastGuess,
-			Answer answer) {
-		// Iterate the list from behind for performance reasons and in order
-		// to not skip codes
-		for (int i = codes.size() - 1; i >= 0; i--) {
-			if (!lastGuess.compare(codes.get(i)).equals(answer)) {
-				codes.remove(i);
-			} 
+	protected void removeInconsistentCodes(CandidateSet codes,
+			Code lastGuess, Answer answer) {
+		codes.retain(lastGuess.getIndex(), answer.getId());
+		if (codes == this.consistentCodes) {
+			Counters.add(Counters.CANDIDATES, codes.size());
+			this.addHistory(lastGuess.getIndex());
+		}
+	}
+
+	/**
+	 * Remember a guess for the symmetry reduction.
+	 */
+	private void addHistory(int guess) {
+		if (this.historySize == this.history.length) {
+			this.history = Arrays.copyOf(this.history, this.historySize * 2);
 		}
+		this.history[this.historySize++] = guess;
 	}
 	
+	/**
+	 * Remove the inconsistent codes from the candidate store (see
+	 * removeInconsistentCodes for sets).
+	 * 
+	 * @param codes
+	 *            Store of codes where inconsistent codes are removed from
+	 * @param lastGuess
+	 *            Last tried guess
+	 * @param answer
+	 *            Answer by the game for the last tried guess
+	 */
+	protected void removeInconsistentCodes(MappedCandidateStore codes,
+			Code lastGuess, Answer answer) {
+		codes.retain(lastGuess.getIndex(), answer.getId());
+		if (codes == this.candidateStore) {
+			Counters.add(Counters.CANDIDATES, codes.size());
+		}
+	}
+
 	/**
 	 * Find and return the code from 'codes' that would result in the
 	 * shortest distance to travel for the robot.
@@ -120,6 +556,68 @@ public abstract class BasicStrategy implements IMastermindStrategy {
 		return codes.get(findShortestCode(codes));
 	}
 
+	/**
+	 * Find and return the code from the set 'codes' that would result in the
+	 * shortest distance to travel for the robot.
+	 * 
+	 * @param codes
+	 *            Set of codes
+	 * @return
+	 */
+	protected Code getShortestCode(CandidateSet codes) {
+		int[] order = this.routes.getOrder(this.lastButton);
+		// Scanning the order takes about order.length / size steps, iterating
+		// the set size steps
+		if (order != null && (long) codes.size() * codes.size() >= order.length) {
+			for (int code : order) {
+				if (codes.contains(code)) {
+					return this.allCodes.get(code);
+				}
+			}
+		}
+		double minDistance = Double.MAX_VALUE;
+		// Index for the shortest code
+		int index = codes.first();
+		for (int i = index; i >= 0; i = codes.next(i + 1)) {
+			double distance = this.routes.getDistance(this.lastButton, i);
+			if (distance < minDistance) {
+				minDistance = distance;
+				index = i;
+			}
+		}
+		return this.allCodes.get(index);
+	}
+
+	/**
+	 * Find and return the code from the store 'codes' that would result in the
+	 * shortest distance to travel for the robot.
+	 * 
+	 * @param codes
+	 *            Store of codes
+	 * @return
+	 */
+	protected Code getShortestCode(MappedCandidateStore codes) {
+		int[] chunk = this.shortestChunk;
+		if (chunk == null) {
+			chunk = this.shortestChunk = new int[MappedCandidateStore.CHUNK_SIZE];
+		}
+		double minDistance = Double.MAX_VALUE;
+		// Index for the shortest code
+		int index = codes.first();
+		for (int from = 0; from < codes.size(); from += chunk.length) {
+			int n = codes.read(from, chunk);
+			for (int i = 0; i < n; i++) {
+				double distance = this.routes.getDistance(this.lastButton,
+						chunk[i]);
+				if (distance < minDistance) {
+					minDistance = distance;
+					index = chunk[i];
+				}
+			}
+		}
+		return this.allCodes.get(index);
+	}
+
 	/**
 	 * Find, remove and return the code from 'codes' that would result in the
 	 * shortest distance to travel for the robot.
@@ -145,8 +643,8 @@ public abstract class BasicStrategy implements IMastermindStrategy {
 		// Index for the shortest code
 		int index = 0;
 		for (int i = index; i < codes.size(); i++) {
-			Code code = codes.get(i);
-			double distance = Simulation.calculateDrivingDistance(lastButton, code);
+			double distance = this.routes.getDistance(this.lastButton, codes
+					.get(i).getIndex());
 			if (distance < minDistance) {
 				minDistance = distance;
 				index = i;
@@ -22,7 +22,7 @@ public class Dummy implements IMastermindStrategy {
 	public Code guess(Answer answer) {
 		T[] t = new T[this.CODE_LENGTH];
 		for(int i = 0; i < this.CODE_LENGTH; i++) {
-			t[i] = T.values()[i];
+			t[i] = T.get(i);
 		}
 		return new Code(t);
 	}
@@ -31,7 +31,7 @@ public class Dummy implements IMastermindStrategy {
 	public Code reset() {
 		T[] t = new T[this.CODE_LENGTH];
 		for(int i = 0; i < this.CODE_LENGTH; i++) {
-			t[i] = T.values()[i];
+			t[i] = T.get(i);
 		}
 		return new Code(t);
 	}
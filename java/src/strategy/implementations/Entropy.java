@@ -1,10 +1,10 @@
 package strategy.implementations;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import strategy.Answer;
 import strategy.Code;
+import strategy.search.CandidateSet;
+import strategy.search.IGuessScorer;
+import strategy.search.Partition;
 
 /**
  * A strategy that seeks the guess with the maximum entropy.
@@ -13,6 +13,14 @@ import strategy.Code;
  */
 public class Entropy extends BasicStrategy {
 
+	/** Maximize the entropy of the answer */
+	private static final IGuessScorer SCORER = new IGuessScorer() {
+		@Override
+		public double score(Partition partition) {
+			return partition.getEntropy();
+		}
+	};
+
 	public Entropy(int codeLength) {
 		super(codeLength);
 	}
@@ -21,32 +29,9 @@ public class Entropy extends BasicStrategy {
 	public Code guess(Answer answer) {
 		this.removeInconsistentCodes(this.consistentCodes, this.lastGuess,
 				answer);
-		List<Code> bestGuesses = new ArrayList<Code>();
-		bestGuesses.add(this.consistentCodes.get(0));
-		double maxEntropy = 0;
-		int totalSize = this.consistentCodes.size();
-		for (Code code : this.allCodes) {
-			double entropy = 0;
-			for (Answer a : this.allAnswers) {
-				int partSize = getConsistentCodes(this.consistentCodes, code, a)
-						.size();
-				if (partSize != 0) {
-					double I = Math.log(1.0 * totalSize / partSize) / Math.log(2);
-					double P = 1.0 * partSize / totalSize;
-					entropy += entropy + I * P;
-				}
-			}
-			if (entropy == maxEntropy && entropy > 0) {
-				bestGuesses.add(code);
-			}
-			if (entropy > maxEntropy) {
-				maxEntropy = entropy;
-				bestGuesses.clear();
-				bestGuesses.add(code);
-			}
-		}
+		CandidateSet bestGuesses = this.getBestGuesses(SCORER, 0);
 		// Use, if possible, consistent codes
-		List<Code> consistentBestGuesses = getConsistentCodes(bestGuesses,
+		CandidateSet consistentBestGuesses = this.getConsistentCodes(bestGuesses,
 				this.lastGuess, answer);
 		if (!consistentBestGuesses.isEmpty()) {
 			bestGuesses = consistentBestGuesses;
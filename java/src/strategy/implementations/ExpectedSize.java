@@ -1,10 +1,11 @@
 package strategy.implementations;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import strategy.Answer;
 import strategy.Code;
+import strategy.IDeterministicStrategy;
+import strategy.search.CandidateSet;
+import strategy.search.IGuessScorer;
+import strategy.search.Partition;
 
 /**
  * A strategy that seeks to maximize the expected payoff.
@@ -15,6 +16,14 @@ import strategy.Code;
 // the weird behaviour of this strategy so that it yielded good results.
 public class ExpectedSize extends BasicStrategy {
 	
+	/** Minimize the expected size, i.e. maximize its negation */
+	private static final IGuessScorer SCORER = new IGuessScorer() {
+		@Override
+		public double score(Partition partition) {
+			return -partition.getExpectedSize();
+		}
+	};
+	
 	private int lastSize; // Needed to fix strance behaviour of this strategy
 
 	public ExpectedSize(int codeLength) {
@@ -32,28 +41,9 @@ public class ExpectedSize extends BasicStrategy {
 			this.lastButton = this.lastGuess.get(this.CODE_LENGTH - 1);
 			return this.lastGuess;
 		}
-		List<Code> bestGuesses = new ArrayList<Code>();
-		bestGuesses.add(this.consistentCodes.get(0));
-		double minExpectedSize = Double.MAX_VALUE;
-		int totalSize = this.consistentCodes.size();
-		for (Code code : this.allCodes) {
-			double expectedSize = 0;
-			for (Answer a : this.allAnswers) {
-				int partSize = getConsistentCodes(this.consistentCodes, code, a)
-						.size();
-				expectedSize += 1.0 * Math.pow(partSize, 2) / totalSize;
-			}
-			if (expectedSize == minExpectedSize) {
-				bestGuesses.add(code);
-			}
-			if (expectedSize < minExpectedSize) {
-				minExpectedSize = expectedSize;
-				bestGuesses.clear();
-				bestGuesses.add(code);
-			}
-		}
+		CandidateSet bestGuesses = this.getBestGuesses(SCORER, -Double.MAX_VALUE);
 		// Use, if possible, consistent codes
-		List<Code> consistentBestGuesses = getConsistentCodes(bestGuesses,
+		CandidateSet consistentBestGuesses = this.getConsistentCodes(bestGuesses,
 				this.lastGuess, answer);
 		if (!consistentBestGuesses.isEmpty()) {
 			bestGuesses = consistentBestGuesses;
@@ -61,7 +51,7 @@ public class ExpectedSize extends BasicStrategy {
 		// Use a code with the shortest travel distance
 		Code guess = this.getShortestCode(bestGuesses);
 		if (guess.equals(lastGuess)) {
-			lastGuess = this.consistentCodes.get(0);
+			lastGuess = this.allCodes.get(this.consistentCodes.first());
 		}
 		else {
 			lastGuess = guess;
@@ -71,6 +61,12 @@ public class ExpectedSize extends BasicStrategy {
 		return this.lastGuess;
 	}
 
+	@Override
+	public void copyStateFrom(IDeterministicStrategy other) {
+		super.copyStateFrom(other);
+		this.lastSize = ((ExpectedSize) other).lastSize;
+	}
+
 	@Override
 	public String toString() {
 		return "Expected Size";
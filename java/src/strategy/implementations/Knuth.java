@@ -1,10 +1,10 @@
 package strategy.implementations;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import strategy.Answer;
 import strategy.Code;
+import strategy.search.CandidateSet;
+import strategy.search.IGuessScorer;
+import strategy.search.Partition;
 
 /**
  * Strategy that uses the worst case algorithm also known as the "Knuth
@@ -14,6 +14,14 @@ import strategy.Code;
  */
 public class Knuth extends BasicStrategy {
 
+	/** Maximize the size of the smallest part */
+	private static final IGuessScorer SCORER = new IGuessScorer() {
+		@Override
+		public double score(Partition partition) {
+			return partition.getSmallestPart();
+		}
+	};
+
 	public Knuth(int codeLength) {
 		super(codeLength);
 	}
@@ -22,27 +30,9 @@ public class Knuth extends BasicStrategy {
 	public Code guess(Answer answer) {
 		this.removeInconsistentCodes(this.consistentCodes, this.lastGuess,
 				answer);
-		List<Code> bestGuesses = new ArrayList<Code>();
-		bestGuesses.add(this.consistentCodes.get(0));
-		int maxMinimum = 0;
-		for (Code code : this.allCodes) {
-			int minimum = Integer.MAX_VALUE;
-			for (Answer a : this.allAnswers) {
-				int removedCodesSize = getConsistentCodes(
-						this.consistentCodes, code, a).size();
-				minimum = Math.min(removedCodesSize, minimum);
-			}
-			if (minimum == maxMinimum && minimum > 0) {
-				bestGuesses.add(code);
-			}
-			if (minimum > maxMinimum) {
-				maxMinimum = minimum;
-				bestGuesses.clear();
-				bestGuesses.add(code);
-			}
-		}
+		CandidateSet bestGuesses = this.getBestGuesses(SCORER, 0);
 		// Use, if possible, consistent codes
-		List<Code> consistentBestGuesses = getConsistentCodes(
+		CandidateSet consistentBestGuesses = this.getConsistentCodes(
 				bestGuesses, this.lastGuess, answer);
 		if(!consistentBestGuesses.isEmpty()) {
 			bestGuesses = consistentBestGuesses;
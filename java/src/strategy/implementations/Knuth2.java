@@ -2,6 +2,8 @@ package strategy.implementations;
 
 import strategy.Answer;
 import strategy.Code;
+import strategy.search.IGuessScorer;
+import strategy.search.Partition;
 
 /**
  * In contrast to Knuth this strategy does *not* try to minimize the travel
@@ -9,6 +11,14 @@ import strategy.Code;
  */
 public class Knuth2 extends BasicStrategy {
 
+	/** Maximize the size of the smallest part */
+	private static final IGuessScorer SCORER = new IGuessScorer() {
+		@Override
+		public double score(Partition partition) {
+			return partition.getSmallestPart();
+		}
+	};
+
 	public Knuth2(int codeLength) {
 		super(codeLength);
 	}
@@ -17,20 +27,9 @@ public class Knuth2 extends BasicStrategy {
 	public Code guess(Answer answer) {
 		this.removeInconsistentCodes(this.consistentCodes, this.lastGuess,
 				answer);
-		this.lastGuess = consistentCodes.get(0);
-		int maxMinimum = 0;
-		for (Code code : this.allCodes) {
-			int minimum = Integer.MAX_VALUE;
-			for (Answer a : this.allAnswers) {
-				int removedCodesSize = getConsistentCodes(
-						this.consistentCodes, code, a).size();
-				minimum = Math.min(removedCodesSize, minimum);
-			}
-			if (minimum > maxMinimum) {
-				maxMinimum = minimum;
-				this.lastGuess = code;
-			}
-		}
+		// Use the first of the best guesses
+		this.lastGuess = this.allCodes.get(this.getBestGuesses(SCORER, 0)
+				.first());
 		this.lastButton = this.lastGuess.get(this.CODE_LENGTH - 1);
 		return this.lastGuess;
 	}
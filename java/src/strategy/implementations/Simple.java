@@ -14,13 +14,20 @@ public class Simple extends BasicStrategy {
 
 	public Simple(int codeLength) {
 		super(codeLength);
+		this.useCandidateStore();
 	}
 
 	@Override
 	public Code guess(Answer answer) {
-		this.removeInconsistentCodes(this.consistentCodes, this.lastGuess,
-				answer);
-		this.lastGuess = this.getShortestCode(this.consistentCodes);
+		if (this.candidateStore != null) {
+			this.removeInconsistentCodes(this.candidateStore, this.lastGuess,
+					answer);
+			this.lastGuess = this.getShortestCode(this.candidateStore);
+		} else {
+			this.removeInconsistentCodes(this.consistentCodes,
+					this.lastGuess, answer);
+			this.lastGuess = this.getShortestCode(this.consistentCodes);
+		}
 		this.lastButton = this.lastGuess.get(this.CODE_LENGTH - 1);
 		return this.lastGuess;
 	}
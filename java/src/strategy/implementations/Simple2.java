@@ -11,28 +11,37 @@ public class Simple2 extends BasicStrategy {
 
 	public Simple2(int codeLength) {
 		super(codeLength);
+		this.useCandidateStore();
 	}
 
 	@Override
 	public Code reset() {
-		// Refill consistent codes
-		this.consistentCodes.clear();
-		this.consistentCodes.addAll(this.allCodes);
+		this.refillConsistentCodes();
 		
-		this.lastGuess = this.consistentCodes.get(0);
+		this.lastGuess = this.allCodes.get(this.firstConsistentCode());
 		this.lastButton = this.lastGuess.get(this.CODE_LENGTH - 1);
 		return this.lastGuess;
 	}
 
 	@Override
 	public Code guess(Answer answer) {		
-		this.removeInconsistentCodes(this.consistentCodes, this.lastGuess,
-				answer);
-		this.lastGuess = this.consistentCodes.get(0);
+		if (this.candidateStore != null) {
+			this.removeInconsistentCodes(this.candidateStore, this.lastGuess,
+					answer);
+		} else {
+			this.removeInconsistentCodes(this.consistentCodes,
+					this.lastGuess, answer);
+		}
+		this.lastGuess = this.allCodes.get(this.firstConsistentCode());
 		this.lastButton = this.lastGuess.get(this.CODE_LENGTH - 1);
 		return this.lastGuess;
 	}
 
+	private int firstConsistentCode() {
+		return this.candidateStore != null ? this.candidateStore.first()
+				: this.consistentCodes.first();
+	}
+
 	@Override
 	public String toString() {
 		return "Simple";
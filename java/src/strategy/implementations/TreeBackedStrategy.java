@@ -0,0 +1,80 @@
+package strategy.implementations;
+
+import strategy.Answer;
+import strategy.Code;
+import strategy.IDeterministicStrategy;
+import strategy.T;
+import strategy.tree.DecisionTree;
+
+/**
+ * A strategy that looks its guesses up in the decision tree of another
+ * deterministic strategy (see DecisionTreeBuilder). It makes the same guesses
+ * as that strategy but needs virtually no time to think.
+ */
+public class TreeBackedStrategy implements IDeterministicStrategy {
+
+	private final DecisionTree tree;
+	/** Node of the last guess */
+	private int node;
+	/** Last pushed button. Selects the root at the reset */
+	private T lastButton;
+
+	public TreeBackedStrategy(DecisionTree tree) {
+		this.tree = tree;
+	}
+
+	@Override
+	public Code reset() {
+		return this.reset(this.lastButton);
+	}
+
+	@Override
+	public Code reset(T lastButton) {
+		this.node = this.tree.getRoot(lastButton);
+		return this.lastGuess();
+	}
+
+	@Override
+	public Code guess(Answer answer) {
+		this.node = this.getChild(answer);
+		return this.lastGuess();
+	}
+
+	/**
+	 * Move to the node of 'answer'. The tree already implies the guess.
+	 */
+	@Override
+	public void replay(Answer answer, Code guess) {
+		this.node = this.getChild(answer);
+		this.lastButton = guess.get(this.tree.getCodeLength() - 1);
+	}
+
+	private int getChild(Answer answer) {
+		int child = this.tree.getChild(this.node, answer.getId());
+		if (child < 0) {
+			throw new IllegalStateException("Answer " + answer
+					+ " is not consistent with the previous answers");
+		}
+		return child;
+	}
+
+	@Override
+	public void copyStateFrom(IDeterministicStrategy other) {
+		TreeBackedStrategy that = (TreeBackedStrategy) other;
+		this.node = that.node;
+		this.lastButton = that.lastButton;
+	}
+
+	private Code lastGuess() {
+		Code guess = Code.fromIndex(this.tree.getGuess(this.node),
+				this.tree.getCodeLength());
+		this.lastButton = guess.get(this.tree.getCodeLength() - 1);
+		return guess;
+	}
+
+	@Override
+	public String toString() {
+		return this.tree.getName() + " (Tree)";
+	}
+
+}
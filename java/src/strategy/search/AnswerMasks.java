@@ -0,0 +1,124 @@
+package strategy.search;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import strategy.Answer;
+import strategy.FeedbackMatrix;
+
+/**
+ * Bit masks of the codes that give a specific answer to a specific guess,
+ * i.e. bit 'secret' of the mask for (guess, answer) is set if
+ * guess.compare(secret) is answer.
+ *
+ * The masks of a guess are computed on first use with a single pass over its
+ * row of the feedback matrix and then kept, so that filtering a candidate set
+ * is a word-wise AND. The masks are shared by all strategies of the same code
+ * length and may be used by multiple threads.
+ *
+ * For lengths above MAX_CACHED_LENGTH the masks of all guesses would not fit
+ * into memory, so they are not kept (see isCached) and candidate sets are
+ * filtered code by code instead.
+ */
+public final class AnswerMasks {
+
+	/** Already created masks by code length */
+	private static final Map<Integer, AnswerMasks> masks = new HashMap<Integer, AnswerMasks>();
+	/** Maximum code length for which the masks are kept */
+	public static final int MAX_CACHED_LENGTH = FeedbackMatrix.MAX_TABLE_LENGTH;
+	/** Mask of answers that no code gives */
+	private static final long[] EMPTY = new long[0];
+
+	private final FeedbackMatrix feedback;
+	/** Number of longs of a mask */
+	private final int words;
+	/** Masks by guess and answer id. Null if not yet computed or not kept */
+	private final AtomicReferenceArray<long[][]> rows;
+
+	private AnswerMasks(FeedbackMatrix feedback) {
+		this.feedback = feedback;
+		this.words = (feedback.size() + 63) >>> 6;
+		this.rows = feedback.getCodeLength() <= MAX_CACHED_LENGTH ? new AtomicReferenceArray<long[][]>(
+				feedback.size()) : null;
+	}
+
+	/**
+	 * Return the masks for the length of the feedback matrix.
+	 * 
+	 * @param feedback
+	 *            Feedback matrix
+	 * @return Answer masks
+	 */
+	public static synchronized AnswerMasks forMatrix(FeedbackMatrix feedback) {
+		AnswerMasks result = masks.get(feedback.getCodeLength());
+		if (result == null) {
+			result = new AnswerMasks(feedback);
+			masks.put(feedback.getCodeLength(), result);
+		}
+		return result;
+	}
+
+	/**
+	 * Return the mask of the codes that give the answer with the id
+	 * 'answerId' to 'guess'. The returned array must not be modified. If no
+	 * code gives the answer the array may be shorter than the other masks. If
+	 * the masks are not cached every call computes all masks of the guess.
+	 * 
+	 * @param guess
+	 *            Index of the guess
+	 * @param answerId
+	 *            Answer id
+	 * @return Mask
+	 */
+	public long[] get(int guess, int answerId) {
+		if (this.rows == null) {
+			long[] mask = this.computeRow(guess)[answerId];
+			return mask != null ? mask : EMPTY;
+		}
+		long[][] row = this.rows.get(guess);
+		if (row == null) {
+			row = this.computeRow(guess);
+			// Another thread may have been faster, but both rows are equal
+			this.rows.compareAndSet(guess, null, row);
+		}
+		long[] mask = row[answerId];
+		return mask != null ? mask : EMPTY;
+	}
+
+	/**
+	 * Return the number of codes, i.e. the number of bits of a mask.
+	 * 
+	 * @return Number of codes
+	 */
+	public int size() {
+		return this.feedback.size();
+	}
+
+	/**
+	 * Return true if the masks are kept, i.e. if get is cheap after the first
+	 * call for a guess.
+	 * 
+	 * @return True, if the masks are cached
+	 */
+	public boolean isCached() {
+		return this.rows != null;
+	}
+
+	public FeedbackMatrix getFeedback() {
+		return this.feedback;
+	}
+
+	private long[][] computeRow(int guess) {
+		long[][] row = new long[Answer.idCount(this.feedback.getCodeLength())][];
+		for (int code = 0; code < this.feedback.size(); code++) {
+			int id = this.feedback.get(guess, code);
+			if (row[id] == null) {
+				row[id] = new long[this.words];
+			}
+			row[id][code >>> 6] |= 1L << code;
+		}
+		return row;
+	}
+
+}
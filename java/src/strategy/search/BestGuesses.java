@@ -0,0 +1,130 @@
+package strategy.search;
+
+import java.util.Arrays;
+
+/**
+ * The guesses with the best score found so far, in the order they were added.
+ *
+ * A guess only counts as best if its score exceeds a threshold. Two instances
+ * that collected the guesses of adjacent ranges can be merged, which gives
+ * the same result as collecting both ranges with one instance.
+ */
+public class BestGuesses {
+
+	/** Scores must be greater than this value to count */
+	private double threshold;
+	/** Best score so far */
+	private double score;
+	/** Guesses with the best score */
+	private int[] guesses;
+	/** Number of guesses with the best score */
+	private int size;
+	/** Number of added guesses */
+	private int scored;
+
+	public BestGuesses(double threshold) {
+		this.guesses = new int[8];
+		this.reset(threshold);
+	}
+
+	/**
+	 * Drop all guesses and start over with another threshold, so that an
+	 * instance can be reused.
+	 * 
+	 * @param threshold
+	 *            Scores must be greater than this value to count
+	 */
+	public void reset(double threshold) {
+		this.threshold = threshold;
+		this.score = threshold;
+		this.size = 0;
+		this.scored = 0;
+	}
+
+	/**
+	 * Add a guess with its score. If the score is better than the best score
+	 * so far the previous guesses are dropped, if it is equal it is appended.
+	 * 
+	 * @param guess
+	 *            Index of the guess
+	 * @param score
+	 *            Score of the guess
+	 */
+	public void add(int guess, double score) {
+		this.scored++;
+		if (score > this.score) {
+			this.score = score;
+			this.size = 0;
+			this.append(guess);
+		} else if (score == this.score && score > this.threshold) {
+			this.append(guess);
+		}
+	}
+
+	/**
+	 * Merge the guesses of 'other', which must have been collected after the
+	 * guesses of this instance, into this instance.
+	 * 
+	 * @param other
+	 *            Best guesses of the following range
+	 */
+	public void merge(BestGuesses other) {
+		this.scored += other.scored;
+		if (other.score > this.score) {
+			this.score = other.score;
+			this.size = 0;
+		}
+		if (other.score == this.score) {
+			for (int i = 0; i < other.size; i++) {
+				this.append(other.guesses[i]);
+			}
+		}
+	}
+
+	/**
+	 * Return the best score or the threshold if no guess exceeded it.
+	 * 
+	 * @return Best score
+	 */
+	public double getScore() {
+		return this.score;
+	}
+
+	/**
+	 * Return the number of best guesses, which is 0 if no guess exceeded the
+	 * threshold.
+	 * 
+	 * @return Number of best guesses
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Return the number of guesses that were added, i.e. scored.
+	 * 
+	 * @return Number of scored guesses
+	 */
+	public int getScored() {
+		return this.scored;
+	}
+
+	/**
+	 * Return the i-th best guess.
+	 * 
+	 * @param i
+	 *            Position
+	 * @return Index of the guess
+	 */
+	public int get(int i) {
+		return this.guesses[i];
+	}
+
+	private void append(int guess) {
+		if (this.size == this.guesses.length) {
+			this.guesses = Arrays.copyOf(this.guesses, this.size * 2);
+		}
+		this.guesses[this.size++] = guess;
+	}
+
+}
@@ -0,0 +1,296 @@
+package strategy.search;
+
+import java.util.Arrays;
+
+import strategy.Counters;
+import strategy.FeedbackMatrix;
+
+/**
+ * A set of code indices backed by a bitset, used for the remaining consistent
+ * codes of a game.
+ *
+ * Removing the codes that are inconsistent with a guess and its answer is a
+ * word-wise AND with the precomputed answer mask (or a test of every code of
+ * the set if the masks are not cached) and refilling the set is an array
+ * fill. Codes are iterated in ascending order.
+ */
+public class CandidateSet {
+
+	private final AnswerMasks masks;
+	/** Bit i is set if code i is in the set */
+	private final long[] words;
+	/** Number of codes in the set */
+	private int size;
+
+	/**
+	 * Create an empty set for the codes of the masks' length.
+	 * 
+	 * @param masks
+	 *            Answer masks
+	 */
+	public CandidateSet(AnswerMasks masks) {
+		this.masks = masks;
+		this.words = new long[(masks.size() + 63) >>> 6];
+	}
+
+	/**
+	 * Fill the set with all codes.
+	 */
+	public void reset() {
+		Arrays.fill(this.words, -1L);
+		int tail = this.masks.size() & 63;
+		if (tail != 0) {
+			this.words[this.words.length - 1] = (1L << tail) - 1;
+		}
+		this.size = this.masks.size();
+	}
+
+	/**
+	 * Remove all codes.
+	 */
+	public void clear() {
+		Arrays.fill(this.words, 0);
+		this.size = 0;
+	}
+
+	/**
+	 * Add a code to the set.
+	 * 
+	 * @param code
+	 *            Code index
+	 */
+	public void add(int code) {
+		long bit = 1L << code;
+		if ((this.words[code >>> 6] & bit) == 0) {
+			this.words[code >>> 6] |= bit;
+			this.size++;
+		}
+	}
+
+	/**
+	 * Replace the codes of this set with the codes of 'other', which must be
+	 * a set for the same code length.
+	 * 
+	 * @param other
+	 *            Set to copy
+	 */
+	public void copyFrom(CandidateSet other) {
+		System.arraycopy(other.words, 0, this.words, 0, this.words.length);
+		this.size = other.size;
+	}
+
+	/**
+	 * Remove every code that does not give the answer with the id 'answerId'
+	 * to 'guess'.
+	 * 
+	 * @param guess
+	 *            Index of the guess
+	 * @param answerId
+	 *            Answer id
+	 */
+	public void retain(int guess, int answerId) {
+		Counters.add(Counters.EVALUATIONS, this.size);
+		if (!this.masks.isCached()) {
+			this.filter(guess, answerId);
+			return;
+		}
+		long[] mask = this.masks.get(guess, answerId);
+		int size = 0;
+		for (int i = 0; i < this.words.length; i++) {
+			long word = i < mask.length ? this.words[i] & mask[i] : 0;
+			this.words[i] = word;
+			size += Long.bitCount(word);
+		}
+		this.size = size;
+	}
+
+	/**
+	 * Remove every code of the set whose answer to 'guess' is not 'answerId'
+	 * by looking up the answers one by one.
+	 */
+	private void filter(int guess, int answerId) {
+		FeedbackMatrix feedback = this.masks.getFeedback();
+		int size = 0;
+		for (int i = 0; i < this.words.length; i++) {
+			long word = this.words[i];
+			long remaining = word;
+			while (remaining != 0) {
+				long bit = remaining & -remaining;
+				int code = (i << 6) + Long.numberOfTrailingZeros(remaining);
+				if (feedback.get(guess, code) != answerId) {
+					word &= ~bit;
+				}
+				remaining &= remaining - 1;
+			}
+			this.words[i] = word;
+			size += Long.bitCount(word);
+		}
+		this.size = size;
+	}
+
+	/**
+	 * Return the number of codes in the set.
+	 * 
+	 * @return Number of codes
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public boolean contains(int code) {
+		return (this.words[code >>> 6] & (1L << code)) != 0;
+	}
+
+	/**
+	 * Return the smallest code in the set or -1 if the set is empty.
+	 * 
+	 * @return Smallest code
+	 */
+	public int first() {
+		return this.next(0);
+	}
+
+	/**
+	 * Return the smallest code in the set that is greater than or equal to
+	 * 'from' or -1 if there is none.
+	 * 
+	 * @param from
+	 *            Code index to start from
+	 * @return Next code
+	 */
+	public int next(int from) {
+		int i = from >>> 6;
+		if (i >= this.words.length) {
+			return -1;
+		}
+		long word = this.words[i] & (-1L << from);
+		while (word == 0) {
+			if (++i == this.words.length) {
+				return -1;
+			}
+			word = this.words[i];
+		}
+		return (i << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	 * Copy the codes in ascending order into 'codes'.
+	 * 
+	 * @param codes
+	 *            Destination with room for at least size() codes
+	 * @return Number of copied codes
+	 */
+	public int toArray(int[] codes) {
+		int n = 0;
+		for (int i = 0; i < this.words.length; i++) {
+			long word = this.words[i];
+			while (word != 0) {
+				codes[n++] = (i << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Return true if a code of the set gives the answer with the id
+	 * 'answerId' to 'guess', i.e. if retain would leave a code. The set is
+	 * not changed.
+	 * 
+	 * @param guess
+	 *            Index of the guess
+	 * @param answerId
+	 *            Answer id
+	 * @return True, if the answer is possible
+	 */
+	public boolean intersects(int guess, int answerId) {
+		if (!this.masks.isCached()) {
+			FeedbackMatrix feedback = this.masks.getFeedback();
+			for (int code = this.first(); code >= 0; code = this.next(code + 1)) {
+				if (feedback.get(guess, code) == answerId) {
+					return true;
+				}
+			}
+			return false;
+		}
+		long[] mask = this.masks.get(guess, answerId);
+		for (int i = 0; i < mask.length; i++) {
+			if ((this.words[i] & mask[i]) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return true if every code of 'other' is in this set.
+	 * 
+	 * @param other
+	 *            Set for the same code length
+	 * @return True, if 'other' is a subset
+	 */
+	public boolean containsAll(CandidateSet other) {
+		for (int i = 0; i < this.words.length; i++) {
+			if ((other.words[i] & ~this.words[i]) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Copy the codes of this set that are not in 'other' in ascending order
+	 * into 'codes'.
+	 * 
+	 * @param other
+	 *            Set for the same code length
+	 * @param codes
+	 *            Destination with room for the codes
+	 * @return Number of copied codes
+	 */
+	public int toArrayExcept(CandidateSet other, int[] codes) {
+		int n = 0;
+		for (int i = 0; i < this.words.length; i++) {
+			long word = this.words[i] & ~other.words[i];
+			while (word != 0) {
+				codes[n++] = (i << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Return true if 'other' is a candidate set with the same codes.
+	 */
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof CandidateSet)) {
+			return false;
+		}
+		CandidateSet that = (CandidateSet) other;
+		return this.size == that.size && Arrays.equals(this.words, that.words);
+	}
+
+	/**
+	 * Return a hash code of the codes in the set, which changes when the set
+	 * changes.
+	 */
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(this.words);
+	}
+
+	/**
+	 * Return the underlying words for iterating the set without method calls
+	 * per code.
+	 */
+	long[] words() {
+		return this.words;
+	}
+
+}
@@ -0,0 +1,310 @@
+package strategy.search;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import strategy.Answer;
+import strategy.Counters;
+import strategy.FeedbackMatrix;
+import strategy.IDeadline;
+
+/**
+ * Finds the guesses with the best score among a set of candidate guesses.
+ *
+ * The search is either sequential or splits the candidates across a
+ * ForkJoinPool. Each task collects the best guesses of its range and the
+ * results are merged in the order of the ranges, so the parallel search
+ * returns exactly the same guesses in the same order as the sequential one.
+ */
+public class GuessSearch {
+
+	/** Number of candidates that a task scores without splitting further */
+	private static final int SPLIT_THRESHOLD = 64;
+	/** Number of candidates scored between two checks of the deadline */
+	private static final int CHECK_INTERVAL = 8;
+	/** Nanoseconds between two checks of the deadline by a parallel search */
+	private static final long POLL_INTERVAL = 100000;
+
+	private final FeedbackMatrix feedback;
+	private final List<Answer> answers;
+	/** Partition of the sequential search */
+	private final Partition partition;
+	/** Result of the sequential search */
+	private final BestGuesses best;
+	/** Pool for the parallel search or null if sequential */
+	private ForkJoinPool pool;
+
+	/**
+	 * Create a sequential search.
+	 * 
+	 * @param feedback
+	 *            Feedback matrix
+	 * @param answers
+	 *            Answers that are taken into account by the scores
+	 */
+	public GuessSearch(FeedbackMatrix feedback, List<Answer> answers) {
+		this.feedback = feedback;
+		this.answers = answers;
+		this.partition = new Partition(feedback, answers);
+		this.best = new BestGuesses(0);
+	}
+
+	/**
+	 * Set the pool for the parallel search or null for a sequential search.
+	 * 
+	 * @param pool
+	 *            Fork/join pool
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Score the first 'count' elements of 'candidates' and return the best of
+	 * them.
+	 * 
+	 * @param scorer
+	 *            Score of a guess
+	 * @param threshold
+	 *            Scores must be greater than this value to count
+	 * @param candidates
+	 *            Indices of the candidate guesses
+	 * @param count
+	 *            Number of candidate guesses
+	 * @param codes
+	 *            Consistent codes, not modified during the search
+	 * @return Best guesses in the order of 'candidates', valid until the next
+	 *         search
+	 */
+	public BestGuesses search(IGuessScorer scorer, double threshold,
+			int[] candidates, int count, CandidateSet codes) {
+		return this.search(scorer, threshold, candidates, count, codes, null);
+	}
+
+	/**
+	 * Same as {@link #search(IGuessScorer, double, int[], int, CandidateSet)}
+	 * but stops scoring once 'deadline' expired. At least one candidate is
+	 * scored. The parallel search checks the deadline on the calling thread
+	 * while the tasks run and stops them when it expires, so the scored
+	 * candidates are not necessarily a prefix of 'candidates'.
+	 * 
+	 * @param scorer
+	 *            Score of a guess
+	 * @param threshold
+	 *            Scores must be greater than this value to count
+	 * @param candidates
+	 *            Indices of the candidate guesses, most promising first
+	 * @param count
+	 *            Number of candidate guesses
+	 * @param codes
+	 *            Consistent codes, not modified during the search
+	 * @param deadline
+	 *            End of the search or null to score all candidates
+	 * @return Best guesses in the order of 'candidates', valid until the next
+	 *         search
+	 */
+	public BestGuesses search(IGuessScorer scorer, double threshold,
+			int[] candidates, int count, CandidateSet codes,
+			IDeadline deadline) {
+		return this.search(scorer, threshold, candidates, count, codes, null,
+				deadline);
+	}
+
+	/**
+	 * Same as
+	 * {@link #search(IGuessScorer, double, int[], int, CandidateSet, IDeadline)}
+	 * but takes the partitions from 'partitions' instead of computing them,
+	 * if it is not null.
+	 * 
+	 * @param scorer
+	 *            Score of a guess
+	 * @param threshold
+	 *            Scores must be greater than this value to count
+	 * @param candidates
+	 *            Indices of the candidate guesses, most promising first
+	 * @param count
+	 *            Number of candidate guesses
+	 * @param codes
+	 *            Consistent codes, not modified during the search
+	 * @param partitions
+	 *            Partitions of 'codes' by every guess or null
+	 * @param deadline
+	 *            End of the search or null to score all candidates
+	 * @return Best guesses in the order of 'candidates', valid until the next
+	 *         search
+	 */
+	public BestGuesses search(IGuessScorer scorer, double threshold,
+			int[] candidates, int count, CandidateSet codes,
+			IncrementalPartitions partitions, IDeadline deadline) {
+		if (this.pool == null || count <= SPLIT_THRESHOLD) {
+			this.best.reset(threshold);
+			score(scorer, candidates, 0, count, codes, partitions,
+					this.partition, this.best, deadline, true, null);
+			return this.best;
+		}
+		Progress progress = deadline != null ? new Progress() : null;
+		SearchTask task = new SearchTask(scorer, threshold, candidates, 0,
+				count, codes, partitions, progress);
+		BestGuesses best;
+		if (progress == null) {
+			best = this.pool.invoke(task);
+		} else {
+			// The clocks measure the calling thread (e.g. its CPU time or
+			// counters), so the deadline must not be checked by the tasks
+			this.pool.execute(task);
+			while (!task.isDone()) {
+				progress.count();
+				if (deadline.isExpired()) {
+					progress.expire();
+					break;
+				}
+				LockSupport.parkNanos(POLL_INTERVAL);
+			}
+			best = task.join();
+		}
+		// Counted here because the tasks run on other threads
+		if (partitions == null) {
+			Counters.add(Counters.EVALUATIONS, (long) best.getScored()
+					* codes.size() - (progress != null ? progress.getCounted() : 0));
+		}
+		Counters.add(Counters.SCORED_GUESSES, best.getScored());
+		return best;
+	}
+
+	/**
+	 * Score candidates[from] to candidates[to - 1] into 'best' until the
+	 * deadline expires. The work is counted in steps of CHECK_INTERVAL
+	 * candidates if 'count' is set, so that a cost model clock advances
+	 * during the search, otherwise the evaluations are reported to
+	 * 'progress' if it is not null.
+	 */
+	private static void score(IGuessScorer scorer, int[] candidates,
+			int from, int to, CandidateSet codes,
+			IncrementalPartitions partitions, Partition partition,
+			BestGuesses best, IDeadline deadline, boolean count,
+			Progress progress) {
+		int i = from;
+		while (i < to) {
+			int end = Math.min(i + CHECK_INTERVAL, to);
+			long evaluations = 0;
+			for (int j = i; j < end; j++) {
+				if (partitions != null) {
+					partitions.fill(candidates[j], partition);
+				} else {
+					partition.compute(candidates[j], codes);
+					evaluations += codes.size();
+				}
+				best.add(candidates[j], scorer.score(partition));
+			}
+			if (count) {
+				Counters.add(Counters.EVALUATIONS, evaluations);
+				Counters.add(Counters.SCORED_GUESSES, end - i);
+			} else if (progress != null) {
+				progress.add(evaluations);
+			}
+			i = end;
+			if (deadline != null && deadline.isExpired()) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Shared state of the tasks of a parallel search with a deadline. The
+	 * tasks report their evaluations, which the calling thread adds to its
+	 * counters while it waits, and stop once the calling thread found the
+	 * deadline expired.
+	 */
+	private static final class Progress implements IDeadline {
+
+		private final AtomicLong evaluations = new AtomicLong();
+		/** Evaluations already added to the counters of the calling thread */
+		private long counted;
+		private volatile boolean expired;
+
+		void add(long evaluations) {
+			this.evaluations.addAndGet(evaluations);
+		}
+
+		/**
+		 * Add the evaluations since the last call to the counters of the
+		 * current thread, which must be the calling thread.
+		 */
+		void count() {
+			long evaluations = this.evaluations.get();
+			Counters.add(Counters.EVALUATIONS, evaluations - this.counted);
+			this.counted = evaluations;
+		}
+
+		long getCounted() {
+			return this.counted;
+		}
+
+		void expire() {
+			this.expired = true;
+		}
+
+		@Override
+		public boolean isExpired() {
+			return this.expired;
+		}
+
+	}
+
+	private class SearchTask extends RecursiveTask<BestGuesses> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final IGuessScorer scorer;
+		private final double threshold;
+		private final int[] candidates;
+		private final int from;
+		private final int to;
+		private final CandidateSet codes;
+		private final IncrementalPartitions partitions;
+		/** Progress of the search or null if it has no deadline */
+		private final Progress progress;
+
+		SearchTask(IGuessScorer scorer, double threshold, int[] candidates,
+				int from, int to, CandidateSet codes,
+				IncrementalPartitions partitions, Progress progress) {
+			this.scorer = scorer;
+			this.threshold = threshold;
+			this.candidates = candidates;
+			this.from = from;
+			this.to = to;
+			this.codes = codes;
+			this.partitions = partitions;
+			this.progress = progress;
+		}
+
+		@Override
+		protected BestGuesses compute() {
+			if (this.to - this.from <= SPLIT_THRESHOLD) {
+				BestGuesses best = new BestGuesses(this.threshold);
+				score(this.scorer, this.candidates, this.from, this.to,
+						this.codes, this.partitions, new Partition(
+								GuessSearch.this.feedback,
+								GuessSearch.this.answers), best, this.progress,
+						false, this.progress);
+				return best;
+			}
+			int middle = (this.from + this.to) >>> 1;
+			SearchTask left = new SearchTask(this.scorer, this.threshold,
+					this.candidates, this.from, middle, this.codes,
+					this.partitions, this.progress);
+			SearchTask right = new SearchTask(this.scorer, this.threshold,
+					this.candidates, middle, this.to, this.codes,
+					this.partitions, this.progress);
+			right.fork();
+			BestGuesses best = left.compute();
+			best.merge(right.join());
+			return best;
+		}
+
+	}
+
+}
@@ -0,0 +1,17 @@
+package strategy.search;
+
+/**
+ * Scores a guess by the partition of the consistent codes it induces.
+ */
+public interface IGuessScorer {
+
+	/**
+	 * Return the score of a guess. The higher the score the better the guess.
+	 * 
+	 * @param partition
+	 *            Partition of the consistent codes by the answers to the guess
+	 * @return Score
+	 */
+	double score(Partition partition);
+
+}
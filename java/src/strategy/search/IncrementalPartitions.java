@@ -0,0 +1,119 @@
+package strategy.search;
+
+import java.util.Arrays;
+
+import strategy.Answer;
+import strategy.Counters;
+import strategy.FeedbackMatrix;
+
+/**
+ * The partitions of a set of codes by every guess, maintained as the set
+ * shrinks.
+ *
+ * The part sizes of all guesses are kept for the set they were last updated
+ * to. If the new set is a subset of it, the update either subtracts the
+ * removed codes or recounts the remaining codes, whichever are fewer, so it
+ * takes min(removed, remaining) evaluations per guess. Scoring a guess then
+ * only copies its part sizes. getUpdateCost allows to only update when that
+ * is cheaper than partitioning the set for every scored guess.
+ *
+ * The sizes take 2 bytes per guess and answer id and are allocated on the
+ * first update. Reading the sizes is thread-safe, updating them is not.
+ */
+public class IncrementalPartitions {
+
+	private final FeedbackMatrix feedback;
+	/** Number of codes, i.e. guesses */
+	private final int size;
+	/** Number of answer ids */
+	private final int answers;
+	/** Part sizes by guess and answer id or null before the first update */
+	private char[] counts;
+	/** Codes the part sizes were counted for */
+	private final CandidateSet counted;
+	/** Buffer of the codes of an update */
+	private int[] codes;
+
+	/**
+	 * Create the partitions for the codes of the masks' length.
+	 *
+	 * @param masks
+	 *            Answer masks
+	 */
+	public IncrementalPartitions(AnswerMasks masks) {
+		this.feedback = masks.getFeedback();
+		this.size = masks.size();
+		this.answers = Answer.idCount(this.feedback.getCodeLength());
+		this.counted = new CandidateSet(masks);
+	}
+
+	/**
+	 * Return the number of feedback evaluations that update takes for
+	 * 'codes'.
+	 *
+	 * @param codes
+	 *            Set of codes
+	 * @return Number of evaluations
+	 */
+	public long getUpdateCost(CandidateSet codes) {
+		if (this.counts == null || !this.counted.containsAll(codes)) {
+			return (long) codes.size() * this.size;
+		}
+		int removed = this.counted.size() - codes.size();
+		return (long) Math.min(removed, codes.size()) * this.size;
+	}
+
+	/**
+	 * Update the part sizes to the partitions of 'codes'.
+	 *
+	 * @param codes
+	 *            Set of codes
+	 */
+	public void update(CandidateSet codes) {
+		Counters.add(Counters.EVALUATIONS, this.getUpdateCost(codes));
+		if (this.counts == null) {
+			this.counts = new char[this.size * this.answers];
+			this.codes = new int[this.size];
+		}
+		if (this.counted.containsAll(codes)
+				&& this.counted.size() - codes.size() <= codes.size()) {
+			int n = this.counted.toArrayExcept(codes, this.codes);
+			this.add(n, -1);
+		} else {
+			Arrays.fill(this.counts, (char) 0);
+			int n = codes.toArray(this.codes);
+			this.add(n, 1);
+		}
+		this.counted.copyFrom(codes);
+	}
+
+	/**
+	 * Set 'partition' to the partition of the codes of the last update by
+	 * 'guess'.
+	 *
+	 * @param guess
+	 *            Index of the guess
+	 * @param partition
+	 *            Partition to set
+	 */
+	public void fill(int guess, Partition partition) {
+		partition.set(this.counts, guess * this.answers, this.counted.size());
+	}
+
+	/**
+	 * Add 'delta' to the part sizes of the first 'n' codes of 'codes' for
+	 * every guess.
+	 */
+	private void add(int n, int delta) {
+		char[] counts = this.counts;
+		int[] codes = this.codes;
+		for (int guess = 0; guess < this.size; guess++) {
+			int offset = guess * this.answers;
+			for (int i = 0; i < n; i++) {
+				int index = offset + this.feedback.get(guess, codes[i]);
+				counts[index] = (char) (counts[index] + delta);
+			}
+		}
+	}
+
+}
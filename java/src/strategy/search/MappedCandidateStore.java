@@ -0,0 +1,189 @@
+package strategy.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel.MapMode;
+
+import strategy.Counters;
+import strategy.FeedbackMatrix;
+
+/**
+ * A set of code indices stored off the heap as a sorted array of packed codes
+ * in a memory-mapped scratch file, used for the consistent codes of long
+ * codes.
+ *
+ * The heap usage does not depend on the code length: the codes live in the
+ * mapping and are filtered and read in chunks of CHUNK_SIZE codes through a
+ * small buffer. Removing the inconsistent codes is a single pass that
+ * compacts the survivors in place, so the codes stay in ascending order.
+ * Refilling the set is O(1): a full set is not written to the file, its
+ * codes are generated by the first pass after the reset.
+ *
+ * The scratch file is created in the directory of the system property
+ * "mastermind.cache" (default the temporary directory) and deleted right
+ * away or on exit. If it cannot be created the array is a direct buffer,
+ * which is still off the heap. An instance must not be used by multiple
+ * threads at the same time.
+ */
+public class MappedCandidateStore {
+
+	/** Number of codes that are filtered or read at once */
+	public static final int CHUNK_SIZE = 4096;
+
+	private final FeedbackMatrix feedback;
+	/** Sorted code indices, only the first 'size' are valid */
+	private final IntBuffer codes;
+	/** Buffer of a chunk of codes */
+	private final int[] chunk = new int[CHUNK_SIZE];
+	/** True if the set contains all codes and 'codes' was not written */
+	private boolean full;
+	/** Number of codes in the set */
+	private int size;
+
+	/**
+	 * Create an empty store for the codes of the feedback matrix' length.
+	 *
+	 * @param feedback
+	 *            Feedback matrix
+	 */
+	public MappedCandidateStore(FeedbackMatrix feedback) {
+		this.feedback = feedback;
+		this.codes = map((long) feedback.size() * 4).asIntBuffer();
+	}
+
+	/**
+	 * Fill the set with all codes.
+	 */
+	public void reset() {
+		this.full = true;
+		this.size = this.feedback.size();
+	}
+
+	/**
+	 * Replace the codes of this set with the codes of 'other', which must be
+	 * a store for the same code length.
+	 *
+	 * @param other
+	 *            Store to copy
+	 */
+	public void copyFrom(MappedCandidateStore other) {
+		this.full = other.full;
+		this.size = other.size;
+		if (!this.full) {
+			for (int from = 0; from < this.size; from += CHUNK_SIZE) {
+				int n = other.read(from, this.chunk);
+				for (int i = 0; i < n; i++) {
+					this.codes.put(from + i, this.chunk[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove every code that does not give the answer with the id 'answerId'
+	 * to 'guess'. The codes are filtered chunk by chunk and the remaining
+	 * codes are moved to the front.
+	 *
+	 * @param guess
+	 *            Index of the guess
+	 * @param answerId
+	 *            Answer id
+	 */
+	public void retain(int guess, int answerId) {
+		Counters.add(Counters.EVALUATIONS, this.size);
+		int size = 0;
+		for (int from = 0; from < this.size; from += CHUNK_SIZE) {
+			int n = this.read(from, this.chunk);
+			// The write position never passes the read position
+			for (int i = 0; i < n; i++) {
+				int code = this.chunk[i];
+				if (this.feedback.get(guess, code) == answerId) {
+					this.codes.put(size++, code);
+				}
+			}
+		}
+		this.full = false;
+		this.size = size;
+	}
+
+	/**
+	 * Copy the codes from the 'from'-th on in ascending order into 'chunk'
+	 * until it is full or the set ends.
+	 *
+	 * @param from
+	 *            Position of the first code
+	 * @param chunk
+	 *            Destination
+	 * @return Number of copied codes
+	 */
+	public int read(int from, int[] chunk) {
+		int n = Math.max(0, Math.min(chunk.length, this.size - from));
+		if (this.full) {
+			for (int i = 0; i < n; i++) {
+				chunk[i] = from + i;
+			}
+		} else {
+			for (int i = 0; i < n; i++) {
+				chunk[i] = this.codes.get(from + i);
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Return the number of codes in the set.
+	 *
+	 * @return Number of codes
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Return the smallest code in the set or -1 if the set is empty.
+	 *
+	 * @return Smallest code
+	 */
+	public int first() {
+		if (this.size == 0) {
+			return -1;
+		}
+		return this.full ? 0 : this.codes.get(0);
+	}
+
+	/**
+	 * Map a scratch file of 'bytes' bytes or allocate a direct buffer if that
+	 * fails.
+	 */
+	private static ByteBuffer map(long bytes) {
+		File dir = new File(System.getProperty("mastermind.cache",
+				System.getProperty("java.io.tmpdir")));
+		try {
+			File file = File.createTempFile("mastermind-candidates-", ".tmp",
+					dir);
+			file.deleteOnExit();
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				raf.setLength(bytes);
+				return raf.getChannel().map(MapMode.READ_WRITE, 0, bytes)
+						.order(ByteOrder.nativeOrder());
+			} finally {
+				raf.close();
+				// The mapping stays valid, at least on Unix the file is gone
+				file.delete();
+			}
+		} catch (IOException e) {
+			return ByteBuffer.allocateDirect((int) bytes).order(
+					ByteOrder.nativeOrder());
+		}
+	}
+
+}
@@ -0,0 +1,200 @@
+package strategy.search;
+
+import java.util.Arrays;
+import java.util.List;
+
+import strategy.Answer;
+import strategy.FeedbackMatrix;
+
+/**
+ * The partition of a set of codes by the answers to a guess, i.e. for every
+ * answer the number of codes that would give this answer.
+ *
+ * The partition is computed in a single pass over the codes into a reused
+ * array, so that scoring a guess neither allocates nor scans the codes once
+ * per answer. The metrics only take the answers into account that were given
+ * in the constructor.
+ *
+ * An instance must not be used by multiple threads at the same time.
+ */
+public class Partition {
+
+	private final FeedbackMatrix feedback;
+	/** Ids of the answers that are taken into account by the metrics */
+	private final int[] answerIds;
+	/** Number of codes for each answer id */
+	private final int[] sizes;
+	/** Number of codes in the partitioned set */
+	private int total;
+
+	/**
+	 * Create a partition for the codes of the feedback matrix' length.
+	 *
+	 * @param feedback
+	 *            Feedback matrix
+	 * @param answers
+	 *            Answers that are taken into account by the metrics
+	 */
+	public Partition(FeedbackMatrix feedback, List<Answer> answers) {
+		this.feedback = feedback;
+		this.answerIds = new int[answers.size()];
+		for (int i = 0; i < this.answerIds.length; i++) {
+			this.answerIds[i] = answers.get(i).getId();
+		}
+		this.sizes = new int[Answer.idCount(feedback.getCodeLength())];
+	}
+
+	/**
+	 * Partition the first 'size' elements of 'codes' by their answers to
+	 * 'guess'.
+	 *
+	 * @param guess
+	 *            Index of the guess
+	 * @param codes
+	 *            Code indices
+	 * @param size
+	 *            Number of code indices in 'codes'
+	 */
+	public void compute(int guess, int[] codes, int size) {
+		Arrays.fill(this.sizes, 0);
+		for (int i = 0; i < size; i++) {
+			this.sizes[this.feedback.get(guess, codes[i])]++;
+		}
+		this.total = size;
+	}
+
+	/**
+	 * Partition the codes of a candidate set by their answers to 'guess'.
+	 *
+	 * @param guess
+	 *            Index of the guess
+	 * @param codes
+	 *            Candidate set
+	 */
+	public void compute(int guess, CandidateSet codes) {
+		Arrays.fill(this.sizes, 0);
+		long[] words = codes.words();
+		for (int i = 0; i < words.length; i++) {
+			long word = words[i];
+			while (word != 0) {
+				int code = (i << 6) + Long.numberOfTrailingZeros(word);
+				this.sizes[this.feedback.get(guess, code)]++;
+				word &= word - 1;
+			}
+		}
+		this.total = codes.size();
+	}
+
+	/**
+	 * Set the part sizes to precomputed counts, see IncrementalPartitions.
+	 *
+	 * @param counts
+	 *            Part sizes by answer id starting at 'offset'
+	 * @param offset
+	 *            Index of the size of the answer with the id 0
+	 * @param total
+	 *            Number of partitioned codes
+	 */
+	public void set(char[] counts, int offset, int total) {
+		for (int id = 0; id < this.sizes.length; id++) {
+			this.sizes[id] = counts[offset + id];
+		}
+		this.total = total;
+	}
+
+	/**
+	 * Return the number of codes that give the answer with the id 'answerId'.
+	 *
+	 * @param answerId
+	 *            Answer id
+	 * @return Size of the part
+	 */
+	public int getSize(int answerId) {
+		return this.sizes[answerId];
+	}
+
+	/**
+	 * Return the number of partitioned codes.
+	 *
+	 * @return Number of codes
+	 */
+	public int getTotal() {
+		return this.total;
+	}
+
+	/**
+	 * Return the size of the largest part, i.e. the number of remaining codes
+	 * in the worst case.
+	 *
+	 * @return Size of the largest part
+	 */
+	public int getLargestPart() {
+		int largest = 0;
+		for (int id : this.answerIds) {
+			largest = Math.max(largest, this.sizes[id]);
+		}
+		return largest;
+	}
+
+	/**
+	 * Return the size of the smallest part. Empty parts are included.
+	 *
+	 * @return Size of the smallest part
+	 */
+	public int getSmallestPart() {
+		int smallest = Integer.MAX_VALUE;
+		for (int id : this.answerIds) {
+			smallest = Math.min(smallest, this.sizes[id]);
+		}
+		return smallest;
+	}
+
+	/**
+	 * Return the expected number of remaining codes if the secret code is
+	 * uniformly distributed over the partitioned codes.
+	 *
+	 * @return Expected size
+	 */
+	public double getExpectedSize() {
+		long squares = 0;
+		for (int id : this.answerIds) {
+			squares += (long) this.sizes[id] * this.sizes[id];
+		}
+		return 1.0 * squares / this.total;
+	}
+
+	/**
+	 * Return the entropy of the answer in bits if the secret code is uniformly
+	 * distributed over the partitioned codes.
+	 *
+	 * @return Entropy
+	 */
+	public double getEntropy() {
+		double entropy = 0;
+		for (int id : this.answerIds) {
+			int partSize = this.sizes[id];
+			if (partSize != 0) {
+				double I = Math.log(1.0 * this.total / partSize) / Math.log(2);
+				double P = 1.0 * partSize / this.total;
+				entropy += I * P;
+			}
+		}
+		return entropy;
+	}
+
+	/**
+	 * Return the number of non-empty parts.
+	 *
+	 * @return Number of parts
+	 */
+	public int getParts() {
+		int parts = 0;
+		for (int id : this.answerIds) {
+			if (this.sizes[id] != 0) {
+				parts++;
+			}
+		}
+		return parts;
+	}
+
+}
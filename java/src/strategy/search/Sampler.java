@@ -0,0 +1,161 @@
+package strategy.search;
+
+/**
+ * Draws random samples of the consistent codes and of the candidate guesses,
+ * so that scoring a guess costs at most a fixed number of feedback
+ * evaluations and a guess scores at most a fixed number of candidates.
+ *
+ * The partition of a sample estimates the relative size of every part of the
+ * consistent codes. By Hoeffding's inequality, which also holds for sampling
+ * without replacement, each estimate is off by more than
+ * {@link #errorBound(int, double)} only with the given probability.
+ *
+ * The samples keep the order of the sampled elements (selection sampling) and
+ * the random numbers are seeded from the game history, so the samples and
+ * thus the guesses only depend on the history.
+ *
+ * An instance must not be used by multiple threads at the same time.
+ */
+public class Sampler {
+
+	private final int codeSample;
+	private final int guessSample;
+	private final long seed;
+	/** Reused sample of the consistent codes */
+	private final CandidateSet codes;
+	/** Reused sample of the candidate guesses */
+	private int[] guesses = new int[0];
+	/** State of the random number generator (SplitMix64) */
+	private long state;
+
+	/**
+	 * Create a sampler.
+	 *
+	 * @param masks
+	 *            Answer masks of the code length
+	 * @param codeSample
+	 *            Number of consistent codes that guesses are scored on
+	 * @param guessSample
+	 *            Number of candidate guesses that are scored or 0 to score
+	 *            all candidates
+	 * @param seed
+	 *            Seed of the samples
+	 */
+	public Sampler(AnswerMasks masks, int codeSample, int guessSample,
+			long seed) {
+		this.codeSample = codeSample;
+		this.guessSample = guessSample <= 0 ? Integer.MAX_VALUE : guessSample;
+		this.seed = seed;
+		this.codes = new CandidateSet(masks);
+	}
+
+	/**
+	 * Seed the random numbers for the next guess from the game history.
+	 *
+	 * @param history
+	 *            Indices of the guesses since the reset
+	 * @param count
+	 *            Number of guesses
+	 */
+	public void seed(int[] history, int count) {
+		long state = this.seed;
+		for (int i = 0; i < count; i++) {
+			state = mix(state + history[i]);
+		}
+		this.state = state;
+	}
+
+	/**
+	 * Return 'codes' if it is not larger than the code sample size and a
+	 * random subset of that size otherwise. The subset is reused by the next
+	 * call.
+	 *
+	 * @param codes
+	 *            Consistent codes
+	 * @return Codes to score the guesses on
+	 */
+	public CandidateSet sampleCodes(CandidateSet codes) {
+		int remaining = codes.size();
+		if (remaining <= this.codeSample) {
+			return codes;
+		}
+		this.codes.clear();
+		int needed = this.codeSample;
+		for (int code = codes.first(); needed > 0; code = codes.next(code + 1)) {
+			if (this.nextInt(remaining) < needed) {
+				this.codes.add(code);
+				needed--;
+			}
+			remaining--;
+		}
+		return this.codes;
+	}
+
+	/**
+	 * Return the number of candidate guesses that getGuesses contains after
+	 * sampling 'count' candidates.
+	 *
+	 * @param count
+	 *            Number of candidate guesses
+	 * @return Number of sampled guesses
+	 */
+	public int getGuessCount(int count) {
+		return Math.min(count, this.guessSample);
+	}
+
+	/**
+	 * Return the first 'count' elements of 'candidates' if there are not more
+	 * than the guess sample size and a random subset of that size in the same
+	 * order otherwise. The subset is reused by the next call.
+	 *
+	 * @param candidates
+	 *            Indices of the candidate guesses
+	 * @param count
+	 *            Number of candidate guesses
+	 * @return Candidates to score, see getGuessCount
+	 */
+	public int[] sampleGuesses(int[] candidates, int count) {
+		if (count <= this.guessSample) {
+			return candidates;
+		}
+		if (this.guesses.length < this.guessSample) {
+			this.guesses = new int[this.guessSample];
+		}
+		int needed = this.guessSample;
+		int size = 0;
+		for (int i = 0; needed > 0; i++) {
+			if (this.nextInt(count - i) < needed) {
+				this.guesses[size++] = candidates[i];
+				needed--;
+			}
+		}
+		return this.guesses;
+	}
+
+	/**
+	 * Return the largest deviation of the estimated relative size of a part
+	 * from the true one that is exceeded with probability 1 - 'confidence'
+	 * at most.
+	 *
+	 * @param sampleSize
+	 *            Number of sampled codes
+	 * @param confidence
+	 *            Probability, e.g. 0.95
+	 * @return Error bound between 0 and 1
+	 */
+	public static double errorBound(int sampleSize, double confidence) {
+		return Math.sqrt(Math.log(2 / (1 - confidence)) / (2.0 * sampleSize));
+	}
+
+	private int nextInt(int bound) {
+		this.state += 0x9e3779b97f4a7c15L;
+		return (int) (((mix(this.state) >>> 33) * bound) >>> 31);
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+}
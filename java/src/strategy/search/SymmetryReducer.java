@@ -0,0 +1,253 @@
+package strategy.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import strategy.PackedCode;
+import strategy.T;
+
+/**
+ * Groups the codes into classes of equivalent guesses for a game history.
+ * 
+ * Buttons that do not occur in any previous guess are interchangeable, and so
+ * are positions if swapping them does not change any previous guess. Applying
+ * such a permutation to the buttons or positions of a guess leaves the set of
+ * consistent codes unchanged and permutes it in the same way as the guess, so
+ * all guesses of a class partition the consistent codes into parts of the same
+ * sizes. Therefore it suffices to score one representative per class.
+ * 
+ * The representative of a class is the code with the smallest index among
+ * all codes of the class, see getCanonical.
+ * 
+ * Computing the classes takes a pass over all codes per permutation of the
+ * positions, which is too slow for lengths above MAX_REDUCED_LENGTH. For those
+ * every code is a class of its own and the representatives are an index
+ * array shared by all reducers of the length.
+ */
+public class SymmetryReducer {
+
+	/** Maximum code length for which the classes are computed */
+	public static final int MAX_REDUCED_LENGTH = 5;
+	/** Representatives of the lengths without reduction, i.e. 0,1,2,... */
+	private static final AtomicReferenceArray<int[]> identities = new AtomicReferenceArray<int[]>(
+			9);
+
+	private final int codeLength;
+	/** Number of codes */
+	private final int size;
+	/** History the canonical codes were computed for */
+	private int[] history = new int[8];
+	/** Number of guesses in 'history' */
+	private int historySize;
+	/** Canonical code of every code for the history or null if not reduced */
+	private final int[] canonical;
+	/** Representatives in ascending order */
+	private int[] representatives;
+	/** Number of representatives */
+	private int representativeCount;
+	/** Position permutations that fix the history, reused between updates */
+	private final List<int[]> permutations = new ArrayList<int[]>();
+	/** Number of valid elements of 'permutations' */
+	private int permutationCount;
+	/** Buffers of update, so that it does not allocate */
+	private final int[] free = new int[T.values().length];
+	private final boolean[] isFree = new boolean[T.values().length];
+	private final int[] digits;
+	private final int[] relabel = new int[T.values().length];
+	private final int[] permutation;
+
+	public SymmetryReducer(int codeLength) {
+		this.codeLength = codeLength;
+		this.size = 1 << (PackedCode.BITS * codeLength);
+		this.digits = new int[codeLength];
+		this.permutation = new int[codeLength];
+		if (codeLength > MAX_REDUCED_LENGTH) {
+			this.canonical = null;
+			this.representatives = identity(codeLength, this.size);
+			this.representativeCount = this.size;
+			return;
+		}
+		this.canonical = new int[this.size];
+		this.representatives = new int[this.size];
+		this.update();
+	}
+
+	private static int[] identity(int codeLength, int size) {
+		int[] identity = identities.get(codeLength);
+		if (identity == null) {
+			identity = new int[size];
+			for (int i = 0; i < size; i++) {
+				identity[i] = i;
+			}
+			// Another thread may have been faster, but both arrays are equal
+			identities.compareAndSet(codeLength, null, identity);
+			identity = identities.get(codeLength);
+		}
+		return identity;
+	}
+
+	/**
+	 * Set the guesses of the current game. The classes are only recomputed if
+	 * the history changed.
+	 * 
+	 * @param guesses
+	 *            Indices of the guesses since the reset
+	 * @param count
+	 *            Number of guesses
+	 */
+	public void setHistory(int[] guesses, int count) {
+		if (this.canonical == null) {
+			return;
+		}
+		if (count == this.historySize && equals(guesses, this.history, count)) {
+			return;
+		}
+		if (count > this.history.length) {
+			this.history = Arrays.copyOf(guesses, Math.max(count,
+					this.history.length * 2));
+		} else {
+			System.arraycopy(guesses, 0, this.history, 0, count);
+		}
+		this.historySize = count;
+		this.update();
+	}
+
+	private static boolean equals(int[] a, int[] b, int count) {
+		for (int i = 0; i < count; i++) {
+			if (a[i] != b[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Return the number of representatives, i.e. classes.
+	 * 
+	 * @return Number of representatives
+	 */
+	public int getRepresentativeCount() {
+		return this.representativeCount;
+	}
+
+	/**
+	 * Return the representatives in ascending order. The array must not be
+	 * modified and only the first getRepresentativeCount() elements are
+	 * valid.
+	 * 
+	 * @return Representatives
+	 */
+	public int[] getRepresentatives() {
+		return this.representatives;
+	}
+
+	/**
+	 * Return the representative of the class of 'code'.
+	 * 
+	 * @param code
+	 *            Code index
+	 * @return Index of the representative
+	 */
+	public int getCanonical(int code) {
+		return this.canonical != null ? this.canonical[code] : code;
+	}
+
+	private void update() {
+		// Buttons that do not occur in the history in ascending order
+		int used = 0;
+		for (int i = 0; i < this.historySize; i++) {
+			used |= PackedCode.buttons(this.history[i], this.codeLength);
+		}
+		int[] free = this.free;
+		boolean[] isFree = this.isFree;
+		int freeCount = 0;
+		for (int t = 0; t < T.values().length; t++) {
+			isFree[t] = (used & (1 << t)) == 0;
+			if (isFree[t]) {
+				free[freeCount++] = t;
+			}
+		}
+		this.updatePermutations();
+		int[] digits = this.digits;
+		int[] relabel = this.relabel;
+		this.representativeCount = 0;
+		for (int code = 0; code < this.size; code++) {
+			int min = Integer.MAX_VALUE;
+			for (int p = 0; p < this.permutationCount; p++) {
+				int[] permutation = this.permutations.get(p);
+				for (int i = 0; i < this.codeLength; i++) {
+					digits[i] = PackedCode.get(code, permutation[i]);
+				}
+				// Give the free buttons the smallest free numbers in order of
+				// their first occurrence from the most significant position
+				Arrays.fill(relabel, -1);
+				int next = 0;
+				int permuted = 0;
+				for (int i = this.codeLength - 1; i >= 0; i--) {
+					int t = digits[i];
+					if (isFree[t]) {
+						if (relabel[t] < 0) {
+							relabel[t] = free[next++];
+						}
+						t = relabel[t];
+					}
+					permuted = (permuted << PackedCode.BITS) | t;
+				}
+				min = Math.min(min, permuted);
+			}
+			this.canonical[code] = min;
+			if (min == code) {
+				this.representatives[this.representativeCount++] = code;
+			}
+		}
+	}
+
+	/**
+	 * Collect all permutations of the positions that do not change any guess
+	 * of the history, including the identity. The arrays of earlier updates
+	 * are reused.
+	 */
+	private void updatePermutations() {
+		int[] permutation = this.permutation;
+		for (int i = 0; i < this.codeLength; i++) {
+			permutation[i] = i;
+		}
+		this.permutationCount = 0;
+		this.permute(permutation, 0);
+	}
+
+	private void permute(int[] permutation, int k) {
+		if (k == permutation.length) {
+			for (int h = 0; h < this.historySize; h++) {
+				int guess = this.history[h];
+				for (int i = 0; i < permutation.length; i++) {
+					if (PackedCode.get(guess, permutation[i]) != PackedCode
+							.get(guess, i)) {
+						return;
+					}
+				}
+			}
+			if (this.permutationCount == this.permutations.size()) {
+				this.permutations.add(new int[permutation.length]);
+			}
+			System.arraycopy(permutation, 0,
+					this.permutations.get(this.permutationCount++), 0,
+					permutation.length);
+			return;
+		}
+		for (int i = k; i < permutation.length; i++) {
+			swap(permutation, k, i);
+			this.permute(permutation, k + 1);
+			swap(permutation, k, i);
+		}
+	}
+
+	private static void swap(int[] a, int i, int j) {
+		int tmp = a[i];
+		a[i] = a[j];
+		a[j] = tmp;
+	}
+
+}
@@ -0,0 +1,348 @@
+package strategy.speculative;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import strategy.Answer;
+import strategy.Code;
+import strategy.Counters;
+import strategy.FeedbackMatrix;
+import strategy.IAsyncStrategy;
+import strategy.IDeterministicStrategy;
+import strategy.IMastermindStrategy;
+import strategy.IStrategyFactory;
+import strategy.search.AnswerMasks;
+import strategy.search.CandidateSet;
+import strategy.search.Partition;
+
+/**
+ * Wraps a deterministic strategy and computes its next guess for every
+ * possible answer in the background as soon as a guess is issued, so that
+ * the thinking overlaps the driving of the robot.
+ *
+ * The answers are speculated on one background thread, the most likely
+ * answer (the largest part of the consistent codes) first. Every speculation
+ * copies the state of the issued guess into a spare instance of the
+ * strategy. When the real answer arrives the other speculations are
+ * cancelled and the state of the matching one becomes the current state, so
+ * the guesses are the same as those of the wrapped strategy.
+ *
+ * The work of the speculation whose answer arrives is added to the counters
+ * of the thread that awaits its guess (see Counters), so the counts are
+ * those of the wrapped strategy. The work of the other speculations is not
+ * counted.
+ */
+public class SpeculativeStrategy implements IAsyncStrategy {
+
+	private final IStrategyFactory factory;
+	private final int codeLength;
+	private final int solved;
+	/** State after the last issued guess, only changed between rounds */
+	private final IDeterministicStrategy current;
+	/** Instances that no speculation uses */
+	private final ArrayDeque<IDeterministicStrategy> idle = new ArrayDeque<IDeterministicStrategy>();
+	private final ThreadPoolExecutor executor;
+	/** Codes that are consistent with the issued guesses */
+	private final CandidateSet consistentCodes;
+	private final Partition partition;
+	/** Guards everything below */
+	private final Object lock = new Object();
+	/** Incremented whenever a guess is issued */
+	private int round;
+	/** Speculations of the current round by answer id or null */
+	private final Speculation[] speculations;
+	/** Instances that finished the speculation of an answer id or null */
+	private final IDeterministicStrategy[] results;
+	/** Guesses of the finished speculations by answer id */
+	private final Code[] guesses;
+	/** Id of the real answer of the current round or -1 if unknown */
+	private int chosen = -1;
+	/** Last issued guess */
+	private Code lastGuess;
+	/** Answer ids in the order they are speculated */
+	private final int[] order;
+
+	/**
+	 * Create a wrapper of the strategies of 'factory', which must be
+	 * deterministic.
+	 *
+	 * @param factory
+	 *            Creates instances of the wrapped strategy
+	 * @param codeLength
+	 *            Code length
+	 */
+	public SpeculativeStrategy(IStrategyFactory factory, int codeLength) {
+		this.factory = factory;
+		this.codeLength = codeLength;
+		this.current = this.create();
+		this.solved = Answer.id(codeLength, 0);
+		FeedbackMatrix feedback = FeedbackMatrix.forLength(codeLength);
+		this.consistentCodes = new CandidateSet(AnswerMasks.forMatrix(feedback));
+		this.partition = new Partition(feedback,
+				Answer.createAllAnswers(codeLength));
+		this.speculations = new Speculation[Answer.idCount(codeLength)];
+		this.results = new IDeterministicStrategy[Answer.idCount(codeLength)];
+		this.guesses = new Code[Answer.idCount(codeLength)];
+		this.order = new int[Answer.idCount(codeLength)];
+		this.executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "speculation");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Return a factory of speculative wrappers of the strategies of
+	 * 'factory'.
+	 *
+	 * @param factory
+	 *            Creates instances of a deterministic strategy
+	 * @return Factory of wrappers
+	 */
+	public static IStrategyFactory wrap(final IStrategyFactory factory) {
+		return new IStrategyFactory() {
+			@Override
+			public IMastermindStrategy create(int codeLength) {
+				return new SpeculativeStrategy(factory, codeLength);
+			}
+		};
+	}
+
+	@Override
+	public Code reset() {
+		synchronized (this.lock) {
+			this.endRound();
+			this.consistentCodes.reset();
+			this.lastGuess = this.current.reset();
+			this.speculate();
+			return this.lastGuess;
+		}
+	}
+
+	@Override
+	public Code guess(Answer answer) {
+		try {
+			return this.guessAsync(answer).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	@Override
+	public Future<Code> guessAsync(Answer answer) {
+		int id = answer.getId();
+		synchronized (this.lock) {
+			this.chosen = id;
+			for (int i = 0; i < this.speculations.length; i++) {
+				if (i != id && this.speculations[i] != null) {
+					this.speculations[i].cancel(false);
+				}
+			}
+			this.executor.purge();
+			Speculation future = this.speculations[id];
+			if (future == null) {
+				// The answer was not expected, compute it now
+				future = this.submit(id);
+			}
+			if (this.results[id] != null) {
+				this.advance(id);
+			}
+			return future;
+		}
+	}
+
+	/**
+	 * Make the result of the speculation of 'id' the current state and start
+	 * speculating the answers to its guess. Must hold the lock.
+	 */
+	private void advance(int id) {
+		this.current.copyStateFrom(this.results[id]);
+		// The caller waits for this speculation, it must not be cancelled
+		this.speculations[id] = null;
+		this.consistentCodes.retain(this.lastGuess.getIndex(), id);
+		this.lastGuess = this.guesses[id];
+		this.endRound();
+		this.speculate();
+	}
+
+	/**
+	 * Cancel the speculations of the current round and free their instances.
+	 * Must hold the lock.
+	 */
+	private void endRound() {
+		for (int i = 0; i < this.speculations.length; i++) {
+			if (this.speculations[i] != null) {
+				this.speculations[i].cancel(false);
+				this.speculations[i] = null;
+			}
+			if (this.results[i] != null) {
+				this.idle.push(this.results[i]);
+				this.results[i] = null;
+			}
+			this.guesses[i] = null;
+		}
+		this.executor.purge();
+		this.chosen = -1;
+		this.round++;
+	}
+
+	/**
+	 * Submit the speculations of all possible answers to the last guess,
+	 * the most likely first. Must hold the lock.
+	 */
+	private void speculate() {
+		this.partition.compute(this.lastGuess.getIndex(), this.consistentCodes);
+		int[] order = this.order;
+		int count = 0;
+		for (int id = 0; id < this.speculations.length; id++) {
+			if (id == this.solved || this.partition.getSize(id) == 0) {
+				continue;
+			}
+			// Insertion sort by descending part size, stable by id
+			int i = count++;
+			while (i > 0
+					&& this.partition.getSize(order[i - 1]) < this.partition
+							.getSize(id)) {
+				order[i] = order[i - 1];
+				i--;
+			}
+			order[i] = id;
+		}
+		for (int i = 0; i < count; i++) {
+			this.submit(order[i]);
+		}
+	}
+
+	/**
+	 * Submit the speculation of answer 'id' of the current round. Must hold
+	 * the lock.
+	 */
+	private Speculation submit(int id) {
+		Speculation speculation = new Speculation(new Work(id, this.round));
+		this.speculations[id] = speculation;
+		this.executor.execute(speculation);
+		return speculation;
+	}
+
+	private IDeterministicStrategy create() {
+		IMastermindStrategy strategy = this.factory.create(this.codeLength);
+		if (!(strategy instanceof IDeterministicStrategy)) {
+			throw new IllegalArgumentException(strategy
+					+ " is not deterministic");
+		}
+		return (IDeterministicStrategy) strategy;
+	}
+
+	@Override
+	public String toString() {
+		return this.current + " (Speculative)";
+	}
+
+	/**
+	 * The guess for one answer of one round. The work is added to the
+	 * counters of the thread that gets the guess, once.
+	 */
+	private static class Speculation extends FutureTask<Code> {
+
+		private final Work work;
+		/** True, if the work was added to the counters */
+		private boolean counted;
+
+		Speculation(Work work) {
+			super(work);
+			this.work = work;
+		}
+
+		@Override
+		public Code get() throws InterruptedException, ExecutionException {
+			Code guess = super.get();
+			this.count();
+			return guess;
+		}
+
+		@Override
+		public Code get(long timeout, TimeUnit unit)
+				throws InterruptedException, ExecutionException,
+				TimeoutException {
+			Code guess = super.get(timeout, unit);
+			this.count();
+			return guess;
+		}
+
+		private synchronized void count() {
+			if (!this.counted) {
+				this.counted = true;
+				for (int i = 0; i < Counters.COUNT; i++) {
+					Counters.add(i, this.work.counts[i]);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Computes the guess for one answer of one round and counts the work of
+	 * the speculation thread.
+	 */
+	private class Work implements Callable<Code> {
+
+		private final int id;
+		private final int round;
+		/** Work of the wrapped strategy by counter */
+		private final long[] counts = new long[Counters.COUNT];
+
+		Work(int id, int round) {
+			this.id = id;
+			this.round = round;
+		}
+
+		@Override
+		public Code call() {
+			IDeterministicStrategy worker;
+			synchronized (lock) {
+				if (this.round != SpeculativeStrategy.this.round) {
+					return null;
+				}
+				worker = idle.isEmpty() ? create() : idle.pop();
+				worker.copyStateFrom(current);
+			}
+			for (int i = 0; i < Counters.COUNT; i++) {
+				this.counts[i] = -Counters.get(i);
+			}
+			Code guess = worker.guess(Answer.fromId(this.id));
+			for (int i = 0; i < Counters.COUNT; i++) {
+				this.counts[i] += Counters.get(i);
+			}
+			synchronized (lock) {
+				if (this.round != SpeculativeStrategy.this.round) {
+					idle.push(worker);
+					return guess;
+				}
+				results[this.id] = worker;
+				guesses[this.id] = guess;
+				if (chosen == this.id) {
+					advance(this.id);
+				}
+			}
+			return guess;
+		}
+
+	}
+
+}
@@ -0,0 +1,223 @@
+package strategy.tree;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import strategy.Answer;
+import strategy.T;
+
+/**
+ * All guesses of a deterministic strategy for a specific code length.
+ * 
+ * Every node holds a guess and has a child for every answer to this guess
+ * that is possible and does not solve the game. There is a root for every
+ * position of the robot at the reset, i.e. the center and every button. The
+ * children of a node are stored in a table, so finding the next guess is an
+ * array access.
+ * 
+ * A tree is immutable once it is built and may be shared by multiple threads.
+ */
+public class DecisionTree {
+
+	/** Identifies a serialised decision tree */
+	private static final int MAGIC = 0x4d4d4454;
+	/** Version of the file format */
+	private static final int VERSION = 1;
+	/** Number of roots: the center and every button */
+	static final int ROOTS = T.values().length + 1;
+
+	/** Name of the strategy */
+	private final String name;
+	private final int codeLength;
+	/** Number of answer ids, i.e. children per node */
+	private final int answers;
+	/** Node of each root, see rootIndex */
+	private final int[] roots;
+	/** Code index of the guess of each node */
+	private int[] guesses;
+	/** Child nodes by node and answer id, -1 if there is no child */
+	private int[] children;
+	/** Number of nodes */
+	private int size;
+
+	DecisionTree(String name, int codeLength) {
+		this.name = name;
+		this.codeLength = codeLength;
+		this.answers = Answer.idCount(codeLength);
+		this.roots = new int[ROOTS];
+		Arrays.fill(this.roots, -1);
+		this.guesses = new int[64];
+		this.children = new int[64 * this.answers];
+		Arrays.fill(this.children, -1);
+	}
+
+	/**
+	 * Return the root for a position of the robot at the reset.
+	 * 
+	 * @param lastButton
+	 *            Last pushed button or null if the robot is in the center
+	 * @return Root node
+	 */
+	public int getRoot(T lastButton) {
+		return this.roots[rootIndex(lastButton)];
+	}
+
+	/**
+	 * Return the code index of the guess of a node.
+	 * 
+	 * @param node
+	 *            Node
+	 * @return Index of the guess
+	 */
+	public int getGuess(int node) {
+		return this.guesses[node];
+	}
+
+	/**
+	 * Return the node that follows 'node' if its guess is answered with the
+	 * answer with the id 'answerId'.
+	 * 
+	 * @param node
+	 *            Node
+	 * @param answerId
+	 *            Answer id
+	 * @return Child node or -1 if the answer is not possible
+	 */
+	public int getChild(int node, int answerId) {
+		return this.children[node * this.answers + answerId];
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public int getCodeLength() {
+		return this.codeLength;
+	}
+
+	/**
+	 * Return the number of nodes.
+	 * 
+	 * @return Number of nodes
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	static int rootIndex(T lastButton) {
+		return lastButton == null ? 0 : lastButton.i + 1;
+	}
+
+	void setRoot(int rootIndex, int node) {
+		this.roots[rootIndex] = node;
+	}
+
+	int addNode(int guess) {
+		if (this.size == this.guesses.length) {
+			this.guesses = Arrays.copyOf(this.guesses, this.size * 2);
+			int oldLength = this.children.length;
+			this.children = Arrays.copyOf(this.children, oldLength * 2);
+			Arrays.fill(this.children, oldLength, this.children.length, -1);
+		}
+		this.guesses[this.size] = guess;
+		return this.size++;
+	}
+
+	void setChild(int node, int answerId, int child) {
+		this.children[node * this.answers + answerId] = child;
+	}
+
+	/**
+	 * Write the tree in a compact binary format. The stream is not closed.
+	 * 
+	 * @param out
+	 *            Output stream
+	 * @throws IOException
+	 */
+	public void write(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeByte(VERSION);
+		data.writeByte(this.codeLength);
+		data.writeUTF(this.name);
+		for (int root : this.roots) {
+			this.writeNode(data, root);
+		}
+		data.flush();
+	}
+
+	/**
+	 * Read a tree that was written with write. The stream is not closed.
+	 * 
+	 * @param in
+	 *            Input stream
+	 * @return Decision tree
+	 * @throws IOException
+	 *             If the stream does not contain a decision tree
+	 */
+	public static DecisionTree read(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != MAGIC || data.readByte() != VERSION) {
+			throw new IOException("Not a decision tree");
+		}
+		int codeLength = data.readByte();
+		DecisionTree tree = new DecisionTree(data.readUTF(), codeLength);
+		for (int i = 0; i < ROOTS; i++) {
+			tree.setRoot(i, tree.readNode(data));
+		}
+		return tree;
+	}
+
+	/** Write a node and its children in preorder */
+	private void writeNode(DataOutputStream data, int node) throws IOException {
+		this.writeGuess(data, this.guesses[node]);
+		int count = 0;
+		for (int id = 0; id < this.answers; id++) {
+			if (this.getChild(node, id) >= 0) {
+				count++;
+			}
+		}
+		data.writeByte(count);
+		for (int id = 0; id < this.answers; id++) {
+			int child = this.getChild(node, id);
+			if (child >= 0) {
+				data.writeByte(id);
+				this.writeNode(data, child);
+			}
+		}
+	}
+
+	private int readNode(DataInputStream data) throws IOException {
+		int node = this.addNode(this.readGuess(data));
+		int count = data.readUnsignedByte();
+		for (int i = 0; i < count; i++) {
+			int id = data.readUnsignedByte();
+			this.setChild(node, id, this.readNode(data));
+		}
+		return node;
+	}
+
+	/** Write a guess with as few bytes as the code length allows */
+	private void writeGuess(DataOutputStream data, int guess) throws IOException {
+		for (int i = 0; i < this.guessBytes(); i++) {
+			data.writeByte(guess >>> (8 * i));
+		}
+	}
+
+	private int readGuess(DataInputStream data) throws IOException {
+		int guess = 0;
+		for (int i = 0; i < this.guessBytes(); i++) {
+			guess |= data.readUnsignedByte() << (8 * i);
+		}
+		return guess;
+	}
+
+	private int guessBytes() {
+		return (3 * this.codeLength + 7) / 8;
+	}
+
+}
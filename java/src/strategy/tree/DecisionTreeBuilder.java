@@ -0,0 +1,152 @@
+package strategy.tree;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import strategy.Answer;
+import strategy.Code;
+import strategy.FeedbackMatrix;
+import strategy.IDeterministicStrategy;
+import strategy.IMastermindStrategy;
+import strategy.IStrategyFactory;
+import strategy.T;
+import strategy.search.AnswerMasks;
+import strategy.search.CandidateSet;
+
+/**
+ * Expands a deterministic strategy into its decision tree by asking it for
+ * the guess after every possible answer sequence from every robot position.
+ * 
+ * Every node is computed exactly once: There is a strategy instance per depth
+ * and a child copies the state of its parent's instance before it asks for
+ * its guess.
+ * 
+ * Run this class to write the tree of a strategy to a file:
+ * 
+ *     DecisionTreeBuilder <strategy class> <code length> <file>
+ * 
+ * e.g. "DecisionTreeBuilder Knuth 4 knuth-4.tree".
+ */
+public class DecisionTreeBuilder {
+
+	/** Maximum number of guesses per game before the strategy is given up */
+	private static final int MAX_DEPTH = 32;
+
+	private final int codeLength;
+	private final AnswerMasks masks;
+	/** Strategy instance of each depth */
+	private final IDeterministicStrategy[] levels;
+	private DecisionTree tree;
+
+	/**
+	 * Create a builder for a strategy.
+	 * 
+	 * @param factory
+	 *            Creates instances of a deterministic strategy
+	 * @param codeLength
+	 *            Code length
+	 */
+	public DecisionTreeBuilder(IStrategyFactory factory, int codeLength) {
+		this.codeLength = codeLength;
+		this.masks = AnswerMasks.forMatrix(FeedbackMatrix.forLength(codeLength));
+		this.levels = new IDeterministicStrategy[MAX_DEPTH];
+		for (int i = 0; i < MAX_DEPTH; i++) {
+			IMastermindStrategy strategy = factory.create(codeLength);
+			if (!(strategy instanceof IDeterministicStrategy)) {
+				throw new IllegalArgumentException(strategy
+						+ " is not deterministic");
+			}
+			this.levels[i] = (IDeterministicStrategy) strategy;
+		}
+	}
+
+	/**
+	 * Build the decision tree.
+	 * 
+	 * @return Decision tree
+	 */
+	public DecisionTree build() {
+		this.tree = new DecisionTree(this.levels[0].toString(), this.codeLength);
+		CandidateSet secrets = new CandidateSet(this.masks);
+		secrets.reset();
+		this.tree.setRoot(DecisionTree.rootIndex(null),
+				this.expand(0, this.levels[0].reset(null), secrets));
+		for (T t : T.values()) {
+			this.tree.setRoot(DecisionTree.rootIndex(t),
+					this.expand(0, this.levels[0].reset(t), secrets));
+		}
+		return this.tree;
+	}
+
+	/**
+	 * Add the node for 'guess' and its subtree. levels[depth] is in the state
+	 * after 'guess'.
+	 * 
+	 * @param depth
+	 *            Number of answers since the reset
+	 * @param guess
+	 *            Guess of the node
+	 * @param secrets
+	 *            Secret codes that lead to this node
+	 * @return Node
+	 */
+	private int expand(int depth, Code guess, CandidateSet secrets) {
+		int node = this.tree.addNode(guess.getIndex());
+		int solved = Answer.id(this.codeLength, 0);
+		for (int id = 0; id < Answer.idCount(this.codeLength); id++) {
+			if (id == solved) {
+				continue;
+			}
+			CandidateSet childSecrets = new CandidateSet(this.masks);
+			childSecrets.copyFrom(secrets);
+			childSecrets.retain(guess.getIndex(), id);
+			if (childSecrets.isEmpty()) {
+				continue;
+			}
+			if (depth + 1 == MAX_DEPTH) {
+				throw new IllegalStateException(this.levels[0]
+						+ " needs more than " + MAX_DEPTH + " guesses");
+			}
+			IDeterministicStrategy strategy = this.levels[depth + 1];
+			strategy.copyStateFrom(this.levels[depth]);
+			Code next = strategy.guess(Answer.fromId(id));
+			this.tree.setChild(node, id, this.expand(depth + 1, next,
+					childSecrets));
+		}
+		return node;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 3) {
+			System.err.println("Usage: DecisionTreeBuilder <strategy class> "
+					+ "<code length> <file>");
+			System.exit(1);
+		}
+		final String className = "strategy.implementations." + args[0];
+		int codeLength = Integer.parseInt(args[1]);
+		IStrategyFactory factory = new IStrategyFactory() {
+			@Override
+			public IMastermindStrategy create(int codeLength) {
+				try {
+					return (IMastermindStrategy) Class.forName(className)
+							.getConstructor(int.class).newInstance(codeLength);
+				} catch (ReflectiveOperationException e) {
+					throw new IllegalArgumentException(e);
+				}
+			}
+		};
+		long timer = System.currentTimeMillis();
+		DecisionTree tree = new DecisionTreeBuilder(factory, codeLength).build();
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(args[2]));
+		try {
+			tree.write(out);
+		} finally {
+			out.close();
+		}
+		System.out.println(tree.getName() + ": " + tree.size() + " nodes in "
+				+ (System.currentTimeMillis() - timer) + " ms");
+	}
+
+}
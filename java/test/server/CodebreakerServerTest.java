@@ -0,0 +1,141 @@
+package server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import strategy.Answer;
+import strategy.Code;
+import strategy.IMastermindStrategy;
+import strategy.IStrategyFactory;
+import strategy.T;
+import strategy.engine.StrategyEngine;
+import strategy.implementations.Knuth;
+
+/**
+ * Plays games against a CodebreakerServer over a socket.
+ */
+public class CodebreakerServerTest {
+
+	private static final int CODE_LENGTH = 4;
+
+	private CodebreakerServer server;
+	private Socket socket;
+	private BufferedReader in;
+	private Writer out;
+
+	@Before
+	public void setUp() throws IOException {
+		this.server = new CodebreakerServer(new StrategyEngine(
+				new IStrategyFactory() {
+					@Override
+					public IMastermindStrategy create(int codeLength) {
+						return new Knuth(codeLength);
+					}
+				}, CODE_LENGTH), 0, 1, 16);
+		this.socket = new Socket(this.server.getAddress().getAddress(),
+				this.server.getAddress().getPort());
+		this.in = new BufferedReader(new InputStreamReader(
+				this.socket.getInputStream(), StandardCharsets.US_ASCII));
+		this.out = new OutputStreamWriter(this.socket.getOutputStream(),
+				StandardCharsets.US_ASCII);
+	}
+
+	@After
+	public void tearDown() throws IOException, InterruptedException {
+		this.socket.close();
+		this.server.close();
+	}
+
+	/**
+	 * A misplaced button of the secret scores white wherever it is in the
+	 * guess, so all but one black and one white is a real answer although
+	 * Answer.createAllAnswers leaves it out. Plays games until one of them
+	 * gives it.
+	 */
+	@Test
+	public void testAnswerWithAllButOneBlackAndOneWhite() throws IOException {
+		Answer answer = Answer.valueOf(CODE_LENGTH - 1, 1);
+		int game = 0;
+		for (Code secret : Code.createAllCodes(CODE_LENGTH)) {
+			Code guess = this.newGame(game);
+			while (!guess.equals(secret)) {
+				Answer next = guess.compare(secret);
+				String response = this.request("ANSWER " + game + " "
+						+ next.blacks + " " + next.whites);
+				assertTrue(response, response.startsWith("GUESS " + game + " "));
+				if (next.equals(answer)) {
+					return;
+				}
+				guess = parseCode(response.split(" ")[2]);
+			}
+			assertEquals("END " + game, this.request("END " + game));
+			game++;
+		}
+		fail("No game gave " + answer);
+	}
+
+	@Test
+	public void testImpossibleAnswer() throws IOException {
+		Code guess = this.newGame(1);
+		Answer impossible = null;
+		for (int b = 0; b <= CODE_LENGTH && impossible == null; b++) {
+			for (int w = 0; b + w <= CODE_LENGTH && impossible == null; w++) {
+				impossible = Answer.valueOf(b, w);
+				for (Code code : Code.createAllCodes(CODE_LENGTH)) {
+					if (guess.compare(code).equals(impossible)) {
+						impossible = null;
+						break;
+					}
+				}
+			}
+		}
+		assertNotNull(impossible);
+		assertEquals("ERROR 1 Impossible answer", this.request("ANSWER 1 "
+				+ impossible.blacks + " " + impossible.whites));
+		// The game is still running
+		assertTrue(this.request("ANSWER 1 0 0").startsWith("GUESS 1 "));
+	}
+
+	@Test
+	public void testInvalidAnswer() throws IOException {
+		this.newGame(1);
+		assertEquals("ERROR 1 Invalid answer", this.request("ANSWER 1 "
+				+ CODE_LENGTH + " 1"));
+		assertEquals("ERROR 1 Invalid answer", this.request("ANSWER 1 -1 0"));
+	}
+
+	private Code newGame(int game) throws IOException {
+		String response = this.request("NEW " + game);
+		assertTrue(response, response.startsWith("GUESS " + game + " "));
+		return parseCode(response.split(" ")[2]);
+	}
+
+	private String request(String line) throws IOException {
+		this.out.write(line + "\n");
+		this.out.flush();
+		return this.in.readLine();
+	}
+
+	private static Code parseCode(String word) {
+		T[] ts = new T[word.length()];
+		for (int i = 0; i < ts.length; i++) {
+			ts[i] = T.get(word.charAt(i) - '0');
+		}
+		return new Code(ts);
+	}
+
+}